@@ -0,0 +1,123 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures deposit and withdraw throughput on one thread and with
+ * several threads sharing a single hot account.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+
+    /** Large enough that withdrawals never run the account dry during a run. */
+    private static final long OPENING_CENTS = Long.MAX_VALUE / 2;
+
+    /**
+     * An account owned by one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class PrivateAccount {
+        BankAccount account;
+
+        /**
+         * Creates and funds the account.
+         */
+        @Setup
+        public void setUp() {
+            account = BenchmarkFixtures.account("256123");
+            account.depositCents(OPENING_CENTS);
+        }
+    }
+
+    /**
+     * An account shared by every benchmark thread.
+     */
+    @State(Scope.Group)
+    public static class SharedAccount {
+        BankAccount account;
+
+        /**
+         * Creates and funds the account.
+         */
+        @Setup
+        public void setUp() {
+            account = BenchmarkFixtures.account("256123");
+            account.depositCents(OPENING_CENTS);
+        }
+    }
+
+    /**
+     * Deposits on an uncontended account.
+     *
+     * @param state the account
+     */
+    @Benchmark
+    public void deposit(final PrivateAccount state) {
+        state.account.deposit(1.25);
+    }
+
+    /**
+     * Withdraws from an uncontended account.
+     *
+     * @param state the account
+     */
+    @Benchmark
+    public void withdraw(final PrivateAccount state) {
+        state.account.withdraw(1.25);
+    }
+
+    /**
+     * Withdraws with PIN verification from an uncontended account.
+     *
+     * @param state the account
+     */
+    @Benchmark
+    public void withdrawWithPin(final PrivateAccount state) {
+        state.account.withdraw(1.25, BenchmarkFixtures.PIN);
+    }
+
+    /**
+     * Deposits into an account that other threads withdraw from concurrently.
+     *
+     * @param state the shared account
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public void contendedDeposit(final SharedAccount state) {
+        state.account.deposit(1.25);
+    }
+
+    /**
+     * Withdraws from an account that other threads deposit into concurrently.
+     *
+     * @param state the shared account
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(2)
+    public void contendedWithdraw(final SharedAccount state) {
+        state.account.withdraw(1.25);
+    }
+}
@@ -0,0 +1,41 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Shared sample data for the benchmarks.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+final class BenchmarkFixtures {
+
+    /** PIN of every sample account. */
+    static final int PIN = 3141;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Creates a sample client.
+     *
+     * @return a client
+     */
+    static BankClient client() {
+        return new BankClient(new Name("Albert", "Einstein"),
+                Date.of(1879, 3, 14),
+                Date.of(1955, 4, 18),
+                "abc123",
+                Date.of(1900, 1, 1));
+    }
+
+    /**
+     * Creates a sample account with a closing date.
+     *
+     * @param accountNumber the account number to use
+     * @return an account
+     */
+    static BankAccount account(final String accountNumber) {
+        return new BankAccount(client(), PIN, accountNumber,
+                Date.of(1900, 1, 1), Date.of(1950, 10, 14));
+    }
+}
@@ -0,0 +1,76 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures Date construction, lookup of shared instances and day-of-week naming.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateBenchmark {
+
+    /* Not final, so the JIT cannot fold the arguments into constants */
+    private int year = 1994;
+    private int month = 5;
+    private int day = 10;
+
+    private final Date date = Date.of(1994, 5, 10);
+
+    /**
+     * Constructs a new, validated Date.
+     *
+     * @return the date
+     */
+    @Benchmark
+    public Date construct() {
+        return new Date(year, month, day);
+    }
+
+    /**
+     * Looks up the shared Date for a day.
+     *
+     * @return the date
+     */
+    @Benchmark
+    public Date sharedInstance() {
+        return Date.of(year, month, day);
+    }
+
+    /**
+     * Names the day of the week.
+     *
+     * @return the day name
+     */
+    @Benchmark
+    public String dayOfWeek() {
+        return date.getDayOfWeek();
+    }
+
+    /**
+     * Formats the date.
+     *
+     * @return the formatted date
+     */
+    @Benchmark
+    public String format() {
+        return date.toString();
+    }
+}
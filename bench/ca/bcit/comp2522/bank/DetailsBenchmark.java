@@ -0,0 +1,66 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering of account and client details, both as new Strings
+ * and into a reused StringBuilder.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DetailsBenchmark {
+
+    private static final int LINE_CHARS = 256;
+
+    private final BankAccount account = BenchmarkFixtures.account("256123");
+    private final StringBuilder line = new StringBuilder(LINE_CHARS);
+
+    /**
+     * Renders account details as a String.
+     *
+     * @return the details
+     */
+    @Benchmark
+    public String accountDetails() {
+        return account.getDetails();
+    }
+
+    /**
+     * Renders client details as a String.
+     *
+     * @return the details
+     */
+    @Benchmark
+    public String clientDetails() {
+        return account.getClient().getDetails();
+    }
+
+    /**
+     * Renders account details into a reused builder.
+     *
+     * @return the builder
+     */
+    @Benchmark
+    public StringBuilder appendAccountDetails() {
+        line.setLength(0);
+        return account.appendDetails(line);
+    }
+}
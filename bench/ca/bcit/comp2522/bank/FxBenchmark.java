@@ -0,0 +1,75 @@
+package ca.bcit.comp2522.bank;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures currency conversion through FxRateTable and transactions on a
+ * foreign sub-balance, next to a plain USD deposit for comparison.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FxBenchmark {
+
+    private static final long AMOUNT_CENTS = 12_345;
+
+    private FxRateTable rates;
+    private BankAccount account;
+
+    /**
+     * Creates the rate table and the account.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        rates = new FxRateTable();
+        rates.setQuote(CurrencyCode.CAD, new BigDecimal("1.3650"));
+        rates.setQuote(CurrencyCode.JPY, new BigDecimal("150.25"));
+        account = BenchmarkFixtures.account("256123");
+    }
+
+    /**
+     * Converts CAD cents to yen.
+     *
+     * @return the converted amount
+     */
+    @Benchmark
+    public long convert() {
+        return rates.convert(AMOUNT_CENTS, CurrencyCode.CAD, CurrencyCode.JPY);
+    }
+
+    /**
+     * Deposits one cent of USD.
+     */
+    @Benchmark
+    public void depositUsd() {
+        account.depositCents(1);
+    }
+
+    /**
+     * Deposits one cent into the CAD sub-balance.
+     */
+    @Benchmark
+    public void depositCad() {
+        account.depositCents(1, CurrencyCode.CAD);
+    }
+}
@@ -0,0 +1,112 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives an AccountService with many concurrent client sessions, each on its
+ * own virtual thread, and reports throughput with p50/p99/p999 latency.
+ * Every session loops for the run duration issuing a random mix of deposits,
+ * PIN withdrawals and detail lookups and waits for each reply before sending
+ * the next.
+ * <p>
+ * Usage: java -cp target/benchmarks.jar ca.bcit.comp2522.bank.LoadGenerator
+ * [sessions] [accounts] [seconds]
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class LoadGenerator {
+
+    private static final int DEFAULT_SESSIONS = 100_000;
+    private static final int DEFAULT_ACCOUNTS = 100_000;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final int FIRST_ACCOUNT_NUMBER = 1_000_000;
+    private static final long OPENING_CENTS = 1_000_000;
+    private static final int MAX_AMOUNT_CENTS = 10_000;
+    private static final int OPERATIONS = 3;
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private LoadGenerator() {
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args optional session count, account count and duration in seconds
+     * @throws InterruptedException if interrupted while waiting for sessions
+     */
+    public static void main(final String[] args) throws InterruptedException {
+        final int sessions = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SESSIONS;
+        final int accountCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ACCOUNTS;
+        final int seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+
+        final AccountRegistry registry = new AccountRegistry(accountCount);
+        final BankClient client = BenchmarkFixtures.client();
+
+        for (int i = 0; i < accountCount; i++) {
+            final BankAccount account = new BankAccount(client, BenchmarkFixtures.PIN,
+                    String.valueOf(FIRST_ACCOUNT_NUMBER + i), Date.of(1900, 1, 1), null);
+            account.depositCents(OPENING_CENTS);
+            registry.add(account);
+        }
+
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final LongAdder failures = new LongAdder();
+        final CountDownLatch done = new CountDownLatch(sessions);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        try (AccountService service = new AccountService(registry)) {
+            for (int s = 0; s < sessions; s++) {
+                Thread.ofVirtual().start(() -> {
+                    try {
+                        runSession(service, accountCount, deadline, latencies, failures);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+
+        final long count = latencies.getCount();
+
+        System.out.printf("%,d sessions, %,d requests in %d s (%,.0f req/s), %,d failed%n",
+                sessions, count, seconds, (double) count / seconds, failures.sum());
+        System.out.printf("p50 %.1f us, p99 %.1f us, p999 %.1f us%n",
+                latencies.getPercentile(50) / NANOS_PER_MICRO,
+                latencies.getPercentile(99) / NANOS_PER_MICRO,
+                latencies.getPercentile(99.9) / NANOS_PER_MICRO);
+    }
+
+    /*
+     * Issues requests one at a time until the deadline, recording each round trip.
+     */
+    private static void runSession(final AccountService service,
+                                   final int accountCount,
+                                   final long deadline,
+                                   final LatencyHistogram latencies,
+                                   final LongAdder failures) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < deadline) {
+            final String accountNumber = String.valueOf(FIRST_ACCOUNT_NUMBER + random.nextInt(accountCount));
+            final long amount = random.nextInt(1, MAX_AMOUNT_CENTS);
+            final long start = System.nanoTime();
+
+            try {
+                switch (random.nextInt(OPERATIONS)) {
+                    case 0 -> service.deposit(accountNumber, amount).join();
+                    case 1 -> service.withdraw(accountNumber, amount, BenchmarkFixtures.PIN).join();
+                    default -> service.getDetails(accountNumber).join();
+                }
+            } catch (final RuntimeException e) {
+                failures.increment();
+            }
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+}
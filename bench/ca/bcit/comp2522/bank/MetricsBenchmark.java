@@ -0,0 +1,78 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost AccountMetrics adds to account operations by running
+ * the same operations with metrics off, on with sampled timing, and on
+ * with every call timed.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+    /** Large enough that withdrawals never run the account dry during a run. */
+    private static final long OPENING_CENTS = Long.MAX_VALUE / 2;
+
+    /** 0 turns metrics off; otherwise one call in this many is timed. */
+    @Param({"0", "64", "1"})
+    public int sampleEvery;
+
+    private BankAccount account;
+
+    /**
+     * Creates and funds the account and installs the metrics under test.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        account = BenchmarkFixtures.account("256123");
+        account.depositCents(OPENING_CENTS);
+        AccountMetrics.install(sampleEvery == 0 ? null : new AccountMetrics(sampleEvery));
+    }
+
+    /**
+     * Turns metrics off again.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        AccountMetrics.install(null);
+    }
+
+    /**
+     * Deposits one cent.
+     */
+    @Benchmark
+    public void deposit() {
+        account.depositCents(1);
+    }
+
+    /**
+     * Withdraws one cent.
+     */
+    @Benchmark
+    public void withdraw() {
+        account.withdrawCents(1);
+    }
+}
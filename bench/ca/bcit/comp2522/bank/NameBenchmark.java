@@ -0,0 +1,71 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the derived forms of a Name and the validation of new names.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NameBenchmark {
+
+    private final Name name = new Name("nelson", "MANDELA");
+
+    /**
+     * Builds the full name.
+     *
+     * @return the full name
+     */
+    @Benchmark
+    public String fullName() {
+        return name.getFullName();
+    }
+
+    /**
+     * Builds the initials.
+     *
+     * @return the initials
+     */
+    @Benchmark
+    public String initials() {
+        return name.getInitials();
+    }
+
+    /**
+     * Builds the reversed name.
+     *
+     * @return the reversed name
+     */
+    @Benchmark
+    public String reverseName() {
+        return name.getReverseName();
+    }
+
+    /**
+     * Validates a first and last name as the Name constructor does.
+     *
+     * @return true if both names are valid
+     */
+    @Benchmark
+    public boolean validate() {
+        return Validation.isValidName(name.getFirst()) && Validation.isValidName(name.getLast());
+    }
+}
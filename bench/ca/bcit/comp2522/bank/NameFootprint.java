@@ -0,0 +1,81 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.ref.Reference;
+
+/**
+ * Measures the heap held per client when names are built with the Name
+ * constructor and with the interning Name.of. Every client gets freshly
+ * created name Strings drawn from a small set of common names, as they
+ * would arrive from an import file. Each name's full name, initials and
+ * reversed name are then rendered, as showing account details does, so the
+ * derived Strings a name keeps are counted too, and the retained heap is
+ * compared after a full collection.
+ * <p>
+ * Usage: java -cp target/benchmarks.jar ca.bcit.comp2522.bank.NameFootprint [clients]
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class NameFootprint {
+
+    private static final int DEFAULT_CLIENTS = 1_000_000;
+    private static final String[] FIRST_NAMES = {"James", "Mary", "Wei", "Priya", "Ahmed", "Sofia"};
+    private static final String[] LAST_NAMES = {"Smith", "Nguyen", "Chen", "Singh", "Garcia", "Kim"};
+    private static final String CLIENT_ID = "c000001";
+    private static final int GC_ROUNDS = 3;
+
+    private NameFootprint() {
+    }
+
+    /**
+     * Runs the measurement.
+     *
+     * @param args optional client count
+     */
+    public static void main(final String[] args) {
+        final int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CLIENTS;
+
+        report("new Name", clientCount, false);
+        report("Name.of", clientCount, true);
+    }
+
+    private static void report(final String label, final int clientCount, final boolean pooled) {
+        final long before = usedHeap();
+        final BankClient[] clients = new BankClient[clientCount];
+        final Date born = Date.of(1980, 1, 1);
+        final Date joined = Date.of(2020, 1, 1);
+
+        for (int i = 0; i < clientCount; i++) {
+            final String first = new String(FIRST_NAMES[i % FIRST_NAMES.length].toCharArray());
+            final String last = new String(LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length]
+                    .toCharArray());
+            final Name name = pooled ? Name.of(first, last) : new Name(first, last);
+
+            clients[i] = new BankClient(name, born, null, CLIENT_ID, joined);
+        }
+        for (final BankClient client : clients) {
+            final Name name = client.getName();
+
+            name.getFullName();
+            name.getInitials();
+            name.getReverseName();
+        }
+
+        final long after = usedHeap();
+
+        Reference.reachabilityFence(clients);
+        System.out.printf("%-8s %,d clients: %.1f bytes per client%n",
+                label, clients.length, (double) (after - before) / clients.length);
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
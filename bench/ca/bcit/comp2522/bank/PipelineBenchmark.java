@@ -0,0 +1,86 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what a WithdrawalPipeline with a VelocityRule adds to a withdrawal:
+ * a plain withdrawal, one admitted by an amount limit that is never reached,
+ * and one refused by a count limit that is always reached.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+
+    /** Large enough that withdrawals never run the account dry during a run. */
+    private static final long OPENING_CENTS = Long.MAX_VALUE / 2;
+
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private BankAccount account;
+    private WithdrawalPipeline admitting;
+    private WithdrawalPipeline refusing;
+
+    /**
+     * Creates and funds the account and builds the two pipelines.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        account = BenchmarkFixtures.account("256123");
+        account.depositCents(OPENING_CENTS);
+        admitting = new WithdrawalPipeline()
+                .addRule(new VelocityRule(0, OPENING_CENTS, WINDOW_MILLIS));
+        refusing = new WithdrawalPipeline()
+                .addRule(new VelocityRule(1, VelocityRule.NO_LIMIT, WINDOW_MILLIS));
+        refusing.tryWithdraw(account, 1);
+    }
+
+    /**
+     * Withdraws one cent directly.
+     *
+     * @return the outcome
+     */
+    @Benchmark
+    public TransactionStatus direct() {
+        return account.tryWithdraw(1);
+    }
+
+    /**
+     * Withdraws one cent through an amount limit that admits it.
+     *
+     * @return the outcome
+     */
+    @Benchmark
+    public TransactionStatus admitted() {
+        return admitting.tryWithdraw(account, 1);
+    }
+
+    /**
+     * Tries to withdraw one cent through a count limit that refuses it.
+     *
+     * @return the outcome
+     */
+    @Benchmark
+    public TransactionStatus refused() {
+        return refusing.tryWithdraw(account, 1);
+    }
+}
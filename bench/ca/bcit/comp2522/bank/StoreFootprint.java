@@ -0,0 +1,108 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.ref.Reference;
+
+/**
+ * Measures the heap held per account by an AccountRegistry of BankAccounts
+ * and by an OffHeapAccountStore holding the same accounts, each owned by its
+ * own client. The clients are created before the heap is first measured and
+ * kept alive throughout, so both figures are what the structure adds on top
+ * of the clients; the client objects themselves are reported separately,
+ * since the store keeps every client on the heap. The retained heap is
+ * compared after a full collection; the store also reports what it
+ * allocated outside the heap.
+ * <p>
+ * Usage: java -cp target/benchmarks.jar ca.bcit.comp2522.bank.StoreFootprint [accounts]
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class StoreFootprint {
+
+    private static final int DEFAULT_ACCOUNTS = 1_000_000;
+    private static final String NUMBER_FORMAT = "%07d";
+    private static final int GC_ROUNDS = 3;
+
+    private StoreFootprint() {
+    }
+
+    /**
+     * Runs the measurement.
+     *
+     * @param args optional account count
+     */
+    public static void main(final String[] args) {
+        final int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ACCOUNTS;
+        final long before = usedHeap();
+        final BankClient[] clients = clients(accountCount);
+        final long after = usedHeap();
+
+        System.out.printf("clients  %,d: %.1f heap bytes per client%n",
+                accountCount, (double) (after - before) / accountCount);
+        reportRegistry(clients);
+        reportStore(clients);
+        Reference.reachabilityFence(clients);
+    }
+
+    /*
+     * Creates one client per account, each with its own Name and ID.
+     */
+    private static BankClient[] clients(final int count) {
+        final BankClient[] clients = new BankClient[count];
+        final Date born = Date.of(1980, 1, 1);
+        final Date signedUp = Date.of(2020, 1, 1);
+
+        for (int i = 0; i < count; i++) {
+            clients[i] = new BankClient(new Name("Client", "Number" + i), born, null,
+                    String.format(NUMBER_FORMAT, i), signedUp);
+        }
+        return clients;
+    }
+
+    private static void reportRegistry(final BankClient[] clients) {
+        final int accountCount = clients.length;
+        final Date opened = Date.of(2020, 1, 1);
+        final long before = usedHeap();
+        final AccountRegistry registry = new AccountRegistry(accountCount);
+
+        for (int i = 0; i < accountCount; i++) {
+            registry.add(new BankAccount(clients[i], BenchmarkFixtures.PIN,
+                    String.format(NUMBER_FORMAT, i), opened, null));
+        }
+
+        final long after = usedHeap();
+
+        Reference.reachabilityFence(registry);
+        System.out.printf("registry %,d accounts: %.1f heap bytes per account%n",
+                accountCount, (double) (after - before) / accountCount);
+    }
+
+    private static void reportStore(final BankClient[] clients) {
+        final int accountCount = clients.length;
+        final Date opened = Date.of(2020, 1, 1);
+        final long before = usedHeap();
+        final OffHeapAccountStore store = new OffHeapAccountStore(accountCount);
+
+        for (int i = 0; i < accountCount; i++) {
+            store.add(clients[i], BenchmarkFixtures.PIN, String.format(NUMBER_FORMAT, i), opened, null);
+        }
+
+        final long after = usedHeap();
+
+        Reference.reachabilityFence(store);
+        System.out.printf("store    %,d accounts: %.1f heap bytes per account, %.1f off-heap%n",
+                accountCount, (double) (after - before) / accountCount,
+                (double) store.getOffHeapBytes() / accountCount);
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,187 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stress test for TransferEngine. Runs uniformly random transfers between
+ * a pool of accounts with 1, 2, 4, ... threads up to the number of cores,
+ * reports throughput for each thread count, and fails if money is created
+ * or lost.
+ * <p>
+ * While transfers run, a checker thread keeps summing every balance. A
+ * transfer's two legs can be seen separately, and the sum is not one atomic
+ * read, so each transfer that was running at any time during the sum can
+ * put it off by up to its amount. The checker counts transfers started
+ * before and after each sum and fails if the total is off by more than that
+ * bound. Once every transfer of the round has finished, the total must match
+ * exactly.
+ * <p>
+ * Usage: java -cp target/benchmarks.jar ca.bcit.comp2522.bank.TransferStress
+ * [accounts] [transfersPerThread]
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class TransferStress {
+
+    private static final int DEFAULT_ACCOUNTS = 10_000;
+    private static final int DEFAULT_TRANSFERS_PER_THREAD = 2_000_000;
+    private static final long OPENING_CENTS = 100_000;
+    private static final int MAX_TRANSFER_CENTS = 5_000;
+    private static final int FIRST_ACCOUNT_NUMBER = 1_000_000;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private TransferStress() {
+    }
+
+    /**
+     * Runs the stress test.
+     *
+     * @param args optional account count and transfers per thread
+     * @throws Exception if a worker fails or money is not conserved
+     */
+    public static void main(final String[] args) throws Exception {
+        final int accountCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ACCOUNTS;
+        final int transfersPerThread = args.length > 1
+                ? Integer.parseInt(args[1])
+                : DEFAULT_TRANSFERS_PER_THREAD;
+        final int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= cores; threads <<= 1) {
+            run(accountCount, transfersPerThread, threads);
+        }
+    }
+
+    /*
+     * Runs one round with a fresh set of accounts, checking conservation while
+     * the transfers run and exactly at the end.
+     */
+    private static void run(final int accountCount,
+                            final int transfersPerThread,
+                            final int threads) throws Exception {
+        final BankClient client = BenchmarkFixtures.client();
+        final BankAccount[] accounts = new BankAccount[accountCount];
+
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = new BankAccount(client, BenchmarkFixtures.PIN,
+                    String.valueOf(FIRST_ACCOUNT_NUMBER + i), Date.of(1900, 1, 1), null);
+            accounts[i].depositCents(OPENING_CENTS);
+        }
+
+        final long expectedTotal = OPENING_CENTS * accountCount;
+        final TransferEngine engine = new TransferEngine();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> workers = new ArrayList<>();
+        final LongAdder started = new LongAdder();
+        final long start = System.nanoTime();
+
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                for (int i = 0; i < transfersPerThread; i++) {
+                    final int from = random.nextInt(accountCount);
+                    int to = random.nextInt(accountCount - 1);
+
+                    if (to >= from) {
+                        to++;
+                    }
+                    started.increment();
+                    engine.transfer(accounts[from], accounts[to],
+                            (long) random.nextInt(1, MAX_TRANSFER_CENTS));
+                }
+            }));
+        }
+        final Checker checker = new Checker(accounts, expectedTotal, started, threads);
+        final Thread checkerThread = new Thread(checker, "transfer-checker");
+
+        checkerThread.start();
+        try {
+            for (final Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            checker.stop = true;
+            checkerThread.join();
+        }
+
+        final long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        if (checker.failure != null) {
+            throw new IllegalStateException(checker.failure);
+        }
+
+        final long total = sum(accounts);
+        if (total != expectedTotal) {
+            throw new IllegalStateException("Money not conserved: expected "
+                    + expectedTotal + " but found " + total);
+        }
+
+        final double perSecond = (double) transfersPerThread * threads * NANOS_PER_SECOND / elapsed;
+        System.out.printf("%2d threads: %,.0f transfers/s, total conserved (%s), %,d checks while running%n",
+                threads, perSecond, Money.format(total), checker.checks);
+    }
+
+    /*
+     * Sums the balances of every account, one account at a time.
+     */
+    private static long sum(final BankAccount[] accounts) {
+        long total = 0;
+
+        for (final BankAccount account : accounts) {
+            total += account.getBalanceCents();
+        }
+        return total;
+    }
+
+    /*
+     * Sums the balances over and over while transfers run, allowing for the
+     * transfers that overlapped each sum.
+     */
+    private static final class Checker implements Runnable {
+        private final BankAccount[] accounts;
+        private final long expectedTotal;
+        private final LongAdder started;
+        private final int threads;
+        private volatile boolean stop;
+        private volatile String failure;
+        private volatile long checks;
+
+        private Checker(final BankAccount[] accounts,
+                        final long expectedTotal,
+                        final LongAdder started,
+                        final int threads) {
+            this.accounts = accounts;
+            this.expectedTotal = expectedTotal;
+            this.started = started;
+            this.threads = threads;
+        }
+
+        @Override
+        public void run() {
+            while (!stop && failure == null) {
+                final long before = started.sum();
+                final long total = sum(accounts);
+                final long after = started.sum();
+
+                // Each worker may have one transfer in flight when the sum begins
+                final long overlapping = after - before + threads;
+                final long slack = overlapping * MAX_TRANSFER_CENTS;
+
+                if (Math.abs(total - expectedTotal) > slack) {
+                    failure = "Money not conserved while running: expected " + expectedTotal
+                            + " +/- " + slack + " but found " + total;
+                }
+                checks++;
+            }
+        }
+    }
+}
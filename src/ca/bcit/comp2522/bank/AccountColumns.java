@@ -0,0 +1,207 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A columnar snapshot of a set of bank accounts for reporting.
+ * Each account becomes one row spread across parallel primitive arrays
+ * (balance, opening day, closing day, opening year, client index), so
+ * aggregates are tight loops over contiguous memory instead of walks
+ * through BankAccount, BankClient and Date objects.
+ * <p>
+ * The snapshot copies balances at the time it is taken; later deposits
+ * and withdrawals are not reflected.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class AccountColumns {
+
+    /** Epoch day stored for a missing opening or closing date. */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final long[] balanceCents;
+    private final int[] openedDay;
+    private final int[] closedDay;
+    private final short[] openedYear;
+    private final int[] clientIndex;
+    private final BankClient[] clients;
+
+    private AccountColumns(final int rows, final int clientCount) {
+        balanceCents = new long[rows];
+        openedDay = new int[rows];
+        closedDay = new int[rows];
+        openedYear = new short[rows];
+        clientIndex = new int[rows];
+        clients = new BankClient[clientCount];
+    }
+
+    /**
+     * Takes a snapshot of every account in a registry.
+     *
+     * @param registry the accounts to snapshot
+     * @return the snapshot, with row i holding the account at index i
+     */
+    public static AccountColumns of(final AccountRegistry registry) {
+        final BankAccount[] accounts = new BankAccount[registry.size()];
+
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = registry.get(i);
+        }
+
+        return of(accounts);
+    }
+
+    /**
+     * Takes a snapshot of an array of accounts.
+     *
+     * @param accounts the accounts to snapshot
+     * @return the snapshot, with row i holding accounts[i]
+     */
+    public static AccountColumns of(final BankAccount[] accounts) {
+        final Map<BankClient, Integer> clientRows = new IdentityHashMap<>();
+
+        for (final BankAccount account : accounts) {
+            clientRows.putIfAbsent(account.getClient(), clientRows.size());
+        }
+
+        final AccountColumns columns = new AccountColumns(accounts.length, clientRows.size());
+
+        for (final Map.Entry<BankClient, Integer> entry : clientRows.entrySet()) {
+            columns.clients[entry.getValue()] = entry.getKey();
+        }
+
+        for (int row = 0; row < accounts.length; row++) {
+            final BankAccount account = accounts[row];
+            final Date opened = account.getAccountOpened();
+            final Date closed = account.getAccountClosed();
+
+            columns.balanceCents[row] = account.getBalanceCents();
+            columns.openedDay[row] = opened == null ? NO_DATE : opened.getEpochDay();
+            columns.closedDay[row] = closed == null ? NO_DATE : closed.getEpochDay();
+            columns.openedYear[row] = opened == null ? 0 : (short) opened.getYear();
+            columns.clientIndex[row] = clientRows.get(account.getClient());
+        }
+
+        return columns;
+    }
+
+    /**
+     * Returns the number of rows in the snapshot.
+     *
+     * @return the number of accounts
+     */
+    public int size() {
+        return balanceCents.length;
+    }
+
+    /**
+     * Returns the balance of one row in cents.
+     *
+     * @param row the row
+     * @return the balance in cents
+     */
+    public long getBalanceCents(final int row) {
+        return balanceCents[row];
+    }
+
+    /**
+     * Returns the owner of one row.
+     *
+     * @param row the row
+     * @return the client
+     */
+    public BankClient getClient(final int row) {
+        return clients[clientIndex[row]];
+    }
+
+    /**
+     * Returns the sum of every balance.
+     *
+     * @return the total balance in cents
+     */
+    public long sumBalanceCents() {
+        long sum = 0;
+
+        for (final long balance : balanceCents) {
+            sum += balance;
+        }
+
+        return sum;
+    }
+
+    /**
+     * Returns the sum of the balances of accounts opened within a range of days.
+     *
+     * @param fromEpochDay the first opening day to include
+     * @param toEpochDay the last opening day to include
+     * @return the total balance in cents
+     */
+    public long sumBalanceCentsOpenedBetween(final int fromEpochDay, final int toEpochDay) {
+        long sum = 0;
+
+        for (int row = 0; row < balanceCents.length; row++) {
+            if (Date.isBetween(openedDay[row], fromEpochDay, toEpochDay)) {
+                sum += balanceCents[row];
+            }
+        }
+
+        return sum;
+    }
+
+    /**
+     * Counts the accounts that have no closing date.
+     *
+     * @return the number of open accounts
+     */
+    public int countOpen() {
+        int count = 0;
+
+        for (final int day : closedDay) {
+            if (day == NO_DATE) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the accounts that have a closing date.
+     *
+     * @return the number of closed accounts
+     */
+    public int countClosed() {
+        return size() - countOpen();
+    }
+
+    /**
+     * Counts the accounts opened in each year of a range.
+     *
+     * @param fromYear the first year to count
+     * @param toYear the last year to count
+     * @return counts where element i is the number of accounts opened in fromYear + i
+     * @throws IllegalArgumentException if toYear is before fromYear
+     */
+    public int[] countByOpeningYear(final int fromYear, final int toYear) {
+        if (toYear < fromYear) {
+            throw new IllegalArgumentException("toYear cannot be before fromYear");
+        }
+
+        final int buckets = toYear - fromYear + 1;
+        final int[] counts = new int[buckets];
+
+        for (final short year : openedYear) {
+            final int bucket = year - fromYear;
+
+            // Unsigned compare folds both range checks into one branch
+            if (Integer.compareUnsigned(bucket, buckets) < 0) {
+                counts[bucket]++;
+            }
+        }
+
+        return counts;
+    }
+}
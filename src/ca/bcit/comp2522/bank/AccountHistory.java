@@ -0,0 +1,320 @@
+package ca.bcit.comp2522.bank;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * An event-sourced history of account balances, answering "what was the
+ * balance on date X".
+ * <p>
+ * Every deposit and withdrawal of an attached account is kept as an
+ * immutable event: its epoch day and signed amount, stored in two parallel
+ * primitive arrays per account. After every CHECKPOINT_EVERY events the
+ * running balance is saved as a checkpoint, so a point-in-time query finds
+ * the last event on or before the date by binary search and replays at most
+ * CHECKPOINT_EVERY - 1 events from the checkpoint before it, however many
+ * years of history the account has. The current balance is materialized as
+ * events arrive.
+ * <p>
+ * Events must be recorded in date order per account. Live transactions are
+ * dated by the history's clock. Past transactions can be back-filled with
+ * record; they explain the balance the account already had when it was
+ * attached, so back-filling lowers the opening balance instead of changing
+ * the current one.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class AccountHistory implements TransactionListener {
+
+    /** Number of events between checkpoints. */
+    static final int CHECKPOINT_EVERY = 64;
+
+    private final Map<BankAccount, Ledger> ledgers = new ConcurrentHashMap<>();
+    private final IntSupplier today;
+
+    /**
+     * Constructs a history that dates live transactions with the system clock.
+     */
+    public AccountHistory() {
+        this(() -> (int) LocalDate.now().toEpochDay());
+    }
+
+    /**
+     * Constructs a history that dates live transactions with a given clock.
+     *
+     * @param today supplies the current epoch day
+     * @throws IllegalArgumentException if today is null
+     */
+    public AccountHistory(final IntSupplier today) {
+        if (today == null) {
+            throw new IllegalArgumentException("today cannot be null");
+        }
+        this.today = today;
+    }
+
+    /**
+     * Starts recording an account's transactions. The account's current
+     * balance becomes its opening balance in the history.
+     * <p>
+     * The listener is registered before the balance is read, so no
+     * transaction can fall between the two. One that is reported while the
+     * account is being attached is kept as a live event and taken back out
+     * of the opening balance, since the balance read afterwards already
+     * includes it. The one case the history cannot tell apart is a
+     * transaction that has changed the balance but not yet looked up the
+     * account's listeners at the instant the balance is read; it is counted
+     * in the opening balance and again as an event. Attach accounts before
+     * sharing them between threads to rule that out.
+     *
+     * @param account the account to follow
+     * @throws IllegalArgumentException if the account is null or already attached
+     */
+    public void attachTo(final BankAccount account) {
+        if (account == null) {
+            throw new IllegalArgumentException("account cannot be null");
+        }
+
+        final Ledger ledger = new Ledger();
+
+        if (ledgers.putIfAbsent(account, ledger) != null) {
+            throw new IllegalArgumentException("account is already attached");
+        }
+        account.addTransactionListener(this);
+        ledger.open(account);
+    }
+
+    /**
+     * Starts recording the transactions of every account in a registry.
+     *
+     * @param registry the accounts to follow
+     * @throws IllegalArgumentException if an account is already attached
+     */
+    public void attachTo(final AccountRegistry registry) {
+        for (int i = 0; i < registry.size(); i++) {
+            attachTo(registry.get(i));
+        }
+    }
+
+    /**
+     * Records a live transaction, dated today.
+     *
+     * @param account the account whose balance changed
+     * @param type the kind of transaction
+     * @param amountCents the positive amount of the transaction in cents
+     */
+    @Override
+    public void onTransaction(final BankAccount account,
+                              final TransactionType type,
+                              final long amountCents) {
+        final Ledger ledger = ledgers.get(account);
+
+        if (ledger != null) {
+            ledger.append(today.getAsInt(), type.signedAmount(amountCents), false);
+        }
+    }
+
+    /**
+     * Back-fills a past transaction that is already part of the balance the
+     * account had when it was attached.
+     *
+     * @param account an attached account
+     * @param date the day the transaction happened
+     * @param type the kind of transaction
+     * @param amountCents the positive amount in cents
+     * @throws IllegalArgumentException if the account is not attached, an
+     *         argument is null, the amount is not positive, or the date is
+     *         before the account's latest event
+     */
+    public void record(final BankAccount account,
+                       final Date date,
+                       final TransactionType type,
+                       final long amountCents) {
+        if (date == null || type == null || amountCents <= 0) {
+            throw new IllegalArgumentException("Invalid event");
+        }
+        ledgerOf(account).append(date.getEpochDay(), type.signedAmount(amountCents), true);
+    }
+
+    /**
+     * Returns an account's balance at the end of a day. Before the account
+     * was opened the balance is 0, and after it was closed it stays at its
+     * balance on the closing day.
+     *
+     * @param account an attached account
+     * @param date the day
+     * @return the balance in cents
+     * @throws IllegalArgumentException if the account is not attached or date is null
+     */
+    public long getBalanceCentsOn(final BankAccount account, final Date date) {
+        if (date == null) {
+            throw new IllegalArgumentException("date cannot be null");
+        }
+
+        final Ledger ledger = ledgerOf(account);
+        final Date opened = account.getAccountOpened();
+        final Date closed = account.getAccountClosed();
+
+        if (opened != null && date.isBefore(opened)) {
+            return 0;
+        }
+
+        final int day = closed != null && date.isAfter(closed)
+                ? closed.getEpochDay()
+                : date.getEpochDay();
+
+        return ledger.balanceOn(day);
+    }
+
+    /**
+     * Returns the balance materialized from an account's events.
+     *
+     * @param account an attached account
+     * @return the balance in cents after the latest event
+     * @throws IllegalArgumentException if the account is not attached
+     */
+    public long getBalanceCents(final BankAccount account) {
+        return ledgerOf(account).balance();
+    }
+
+    /**
+     * Returns the number of events recorded for an account.
+     *
+     * @param account an attached account
+     * @return the event count
+     * @throws IllegalArgumentException if the account is not attached
+     */
+    public int getEventCount(final BankAccount account) {
+        return ledgerOf(account).size();
+    }
+
+    private Ledger ledgerOf(final BankAccount account) {
+        final Ledger ledger = account == null ? null : ledgers.get(account);
+
+        if (ledger == null) {
+            throw new IllegalArgumentException("account is not attached");
+        }
+        return ledger;
+    }
+
+    /*
+     * The events and checkpoints of one account. Appends and queries lock the
+     * ledger, so each account's events stay in order without a global lock.
+     */
+    private static final class Ledger {
+        private static final int INITIAL_EVENTS = 16;
+
+        private long openingCents;
+        private int[] days = new int[INITIAL_EVENTS];
+        private long[] deltas = new long[INITIAL_EVENTS];
+        private long[] checkpoints = new long[1];
+        private int size;
+        private long balance;
+
+        /*
+         * Sets the opening balance from the account's balance, read under the
+         * ledger lock so no event is appended meanwhile. Events reported
+         * before this were appended on an opening of 0 and are already in the
+         * balance read, so they are taken out of the opening instead.
+         */
+        private synchronized void open(final BankAccount account) {
+            final long current = account.getBalanceCents();
+            final long reported = balance;
+
+            openingCents = current - reported;
+            balance = current;
+            for (int i = 0; i < size / CHECKPOINT_EVERY; i++) {
+                checkpoints[i] += openingCents;
+            }
+        }
+
+        /*
+         * Appends an event. A live event dated before the latest one, for example
+         * after the clock was set back, is moved to the latest event's day so it
+         * never fails a transaction that has already been applied.
+         */
+        private synchronized void append(final int eventDay, final long delta, final boolean backfill) {
+            int day = eventDay;
+
+            if (size > 0 && day < days[size - 1]) {
+                if (backfill) {
+                    throw new IllegalArgumentException("events must be recorded in date order");
+                }
+                day = days[size - 1];
+            }
+            if (backfill) {
+                // The event was already in the opening balance, so move it out
+                openingCents -= delta;
+                balance -= delta;
+                for (int i = 0; i < size / CHECKPOINT_EVERY; i++) {
+                    checkpoints[i] -= delta;
+                }
+            }
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                deltas = Arrays.copyOf(deltas, size * 2);
+            }
+
+            days[size] = day;
+            deltas[size] = delta;
+            size++;
+            balance += delta;
+
+            if (size % CHECKPOINT_EVERY == 0) {
+                final int checkpoint = size / CHECKPOINT_EVERY - 1;
+
+                if (checkpoint == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+                }
+                checkpoints[checkpoint] = balance;
+            }
+        }
+
+        private synchronized long balance() {
+            return balance;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        /*
+         * Replays from the last checkpoint at or before the last event on the day.
+         */
+        private synchronized long balanceOn(final int day) {
+            final int events = eventsUpTo(day);
+            final int checkpoint = events / CHECKPOINT_EVERY;
+            long result = checkpoint == 0 ? openingCents : checkpoints[checkpoint - 1];
+
+            for (int i = checkpoint * CHECKPOINT_EVERY; i < events; i++) {
+                result += deltas[i];
+            }
+
+            return result;
+        }
+
+        /*
+         * Counts the events dated on or before a day.
+         */
+        private int eventsUpTo(final int day) {
+            int low = 0;
+            int high = size;
+
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+
+                if (days[middle] <= day) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for the public BankAccount operations.
+ * <p>
+ * Once installed, every deposit, withdrawal, PIN withdrawal and getDetails
+ * call adds one to a LongAdder for its operation and outcome, so concurrent
+ * callers update separate cells instead of one contended word. This covers
+ * the non-throwing paths used by the services and batch jobs as well as the
+ * public methods, and amounts rejected before they reach the balance count
+ * as INVALID_AMOUNT. Latency is sampled: one call in sampleEvery reads the
+ * clock twice and records into the operation's LatencyHistogram; the calls
+ * in between never read the clock. The choice is made by bumping a plain
+ * counter picked by thread ID, which costs a load and a store. Threads that
+ * share a counter may lose ticks, so under contention the sampling rate is
+ * only approximately one in sampleEvery and varies from run to run; the
+ * outcome counts are always exact. While nothing is installed the accounts
+ * skip all of this after one volatile read.
+ * <p>
+ * Known deviation from the few-nanosecond budget: on one core MetricsBenchmark
+ * measures about 15 ns per deposit or withdrawal with metrics off, about
+ * 20-22 ns with counting alone and about 23 ns sampling one call in 64, so
+ * installed metrics add roughly 5-9 ns per operation. Nearly all of it is
+ * the LongAdder increment, which exact counts need; the sampling decision
+ * adds about 1 ns.
+ * <p>
+ * The metrics can be read through JMX, as text from getReport, or dumped to
+ * a stream on a fixed period.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class AccountMetrics implements AccountMetricsMXBean {
+
+    /** The instrumented operations. */
+    public enum Operation {
+        /** deposit, depositCents and the non-throwing deposits. */
+        DEPOSIT,
+        /** withdraw and withdrawCents without a PIN, and the non-throwing withdrawals. */
+        WITHDRAWAL,
+        /** withdraw with a PIN and the non-throwing PIN withdrawals. */
+        PIN_WITHDRAWAL,
+        /** getDetails. */
+        DETAILS
+    }
+
+    /** Start time passed to record for a call whose latency is not sampled. */
+    static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /** Name the metrics are registered under by registerMBean. */
+    public static final String OBJECT_NAME = "ca.bcit.comp2522.bank:type=AccountMetrics";
+
+    private static final int DEFAULT_SAMPLE_EVERY = 64;
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final double[] PERCENTILES = {50.0, 99.0, 99.9};
+    private static final String[] PERCENTILE_LABELS = {" p50=", " p99=", " p99.9="};
+
+    /** Number of sampling counters; threads are spread over them by ID. */
+    private static final int TICK_STRIPES = 64;
+
+    /** Ints between two counters, so that each sits on its own cache line. */
+    private static final int TICK_SPACING = 16;
+
+    private static final ScheduledExecutorService REPORTER =
+            Executors.newSingleThreadScheduledExecutor(task -> {
+                final Thread thread = new Thread(task, "account-metrics-reporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /** The metrics BankAccount reports to, or null when metrics are off. */
+    private static volatile AccountMetrics installed;
+
+    private final LongAdder[] outcomes = new LongAdder[OPERATIONS.length * STATUSES.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final int[] ticks = new int[TICK_STRIPES * TICK_SPACING];
+    private final int sampleMask;
+
+    /**
+     * Constructs metrics that time one call in 64.
+     */
+    public AccountMetrics() {
+        this(DEFAULT_SAMPLE_EVERY);
+    }
+
+    /**
+     * Constructs metrics that time a fraction of calls.
+     *
+     * @param sampleEvery time one call in this many, rounded up to a power of two;
+     *                    1 times every call
+     * @throws IllegalArgumentException if sampleEvery is less than 1
+     */
+    public AccountMetrics(final int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1");
+        }
+
+        sampleMask = sampleEvery == 1 ? 0 : (Integer.highestOneBit(sampleEvery - 1) << 1) - 1;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Makes every BankAccount report to a set of metrics.
+     *
+     * @param metrics the metrics to report to, or null to turn metrics off
+     */
+    public static void install(final AccountMetrics metrics) {
+        installed = metrics;
+    }
+
+    /**
+     * Returns the metrics BankAccount currently reports to.
+     *
+     * @return the installed metrics, or null if metrics are off
+     */
+    public static AccountMetrics installed() {
+        return installed;
+    }
+
+    /**
+     * Starts measuring a call.
+     *
+     * @return the start time in nanoseconds if this call is sampled, otherwise NOT_TIMED
+     */
+    long start() {
+        final int stripe = ((int) Thread.currentThread().threadId() & (TICK_STRIPES - 1)) * TICK_SPACING;
+        final int tick = ticks[stripe] + 1;
+
+        ticks[stripe] = tick;
+        return (tick & sampleMask) == 0 ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Starts measuring a call if metrics are installed.
+     *
+     * @param metrics the installed metrics, or null
+     * @return as for start, or NOT_TIMED if metrics is null
+     */
+    static long start(final AccountMetrics metrics) {
+        return metrics == null ? NOT_TIMED : metrics.start();
+    }
+
+    /**
+     * Records the outcome of a call if metrics are installed.
+     *
+     * @param metrics the installed metrics, or null
+     * @param operation the operation
+     * @param status the outcome
+     * @param startNanos the value returned by start
+     * @return status, so a call can record and return its outcome in one step
+     */
+    static TransactionStatus record(final AccountMetrics metrics,
+                                    final Operation operation,
+                                    final TransactionStatus status,
+                                    final long startNanos) {
+        if (metrics != null) {
+            metrics.record(operation, status, startNanos);
+        }
+        return status;
+    }
+
+    /**
+     * Records the outcome of a call and, if it was sampled, its latency.
+     *
+     * @param operation the operation
+     * @param status the outcome
+     * @param startNanos the value returned by start
+     */
+    void record(final Operation operation, final TransactionStatus status, final long startNanos) {
+        outcomes[operation.ordinal() * STATUSES.length + status.ordinal()].increment();
+        if (startNanos != NOT_TIMED) {
+            latencies[operation.ordinal()].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Returns the number of calls of an operation with a given outcome.
+     *
+     * @param operation the operation
+     * @param status the outcome
+     * @return the count
+     */
+    public long getCount(final Operation operation, final TransactionStatus status) {
+        return outcomes[operation.ordinal() * STATUSES.length + status.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of calls of an operation with any outcome.
+     *
+     * @param operation the operation
+     * @return the count
+     */
+    public long getCount(final Operation operation) {
+        long total = 0;
+
+        for (final TransactionStatus status : STATUSES) {
+            total += getCount(operation, status);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of calls of any operation with a given outcome.
+     *
+     * @param status the outcome
+     * @return the count
+     */
+    public long getCount(final TransactionStatus status) {
+        long total = 0;
+
+        for (final Operation operation : OPERATIONS) {
+            total += getCount(operation, status);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the sampled latencies of an operation.
+     *
+     * @param operation the operation
+     * @return its histogram
+     */
+    public LatencyHistogram getLatencies(final Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    @Override
+    public long getDepositCount() {
+        return getCount(Operation.DEPOSIT);
+    }
+
+    @Override
+    public long getWithdrawalCount() {
+        return getCount(Operation.WITHDRAWAL);
+    }
+
+    @Override
+    public long getPinWithdrawalCount() {
+        return getCount(Operation.PIN_WITHDRAWAL);
+    }
+
+    @Override
+    public long getDetailsCount() {
+        return getCount(Operation.DETAILS);
+    }
+
+    @Override
+    public long getInvalidAmountCount() {
+        return getCount(TransactionStatus.INVALID_AMOUNT);
+    }
+
+    @Override
+    public long getInsufficientFundsCount() {
+        return getCount(TransactionStatus.INSUFFICIENT_FUNDS);
+    }
+
+    @Override
+    public long getWrongPinCount() {
+        return getCount(TransactionStatus.WRONG_PIN);
+    }
+
+    @Override
+    public long getLockedOutCount() {
+        return getCount(TransactionStatus.LOCKED_OUT);
+    }
+
+    @Override
+    public long getOverflowCount() {
+        return getCount(TransactionStatus.OVERFLOW);
+    }
+
+    /**
+     * Returns one line per operation with its outcome counts and sampled
+     * latency percentiles, for example
+     * "deposit calls=10 success=9 invalid_amount=1 p50=40ns p99=95ns p99.9=120ns".
+     *
+     * @return the report
+     */
+    @Override
+    public String getReport() {
+        final StringBuilder out = new StringBuilder();
+
+        for (final Operation operation : OPERATIONS) {
+            out.append(operation.name().toLowerCase(Locale.ROOT))
+                    .append(" calls=").append(getCount(operation));
+
+            for (final TransactionStatus status : STATUSES) {
+                final long count = getCount(operation, status);
+
+                if (count > 0) {
+                    out.append(' ').append(status.name().toLowerCase(Locale.ROOT))
+                            .append('=').append(count);
+                }
+            }
+
+            final LatencyHistogram histogram = latencies[operation.ordinal()];
+
+            if (histogram.getCount() > 0) {
+                for (int i = 0; i < PERCENTILES.length; i++) {
+                    out.append(PERCENTILE_LABELS[i])
+                            .append(histogram.getPercentile(PERCENTILES[i])).append("ns");
+                }
+            }
+            out.append(System.lineSeparator());
+        }
+
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (final LongAdder counter : outcomes) {
+            counter.reset();
+        }
+        for (final LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under OBJECT_NAME.
+     *
+     * @throws IllegalStateException if registration fails, for example
+     *         because other metrics are already registered
+     */
+    public void registerMBean() {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            server.registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (final JMException e) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Prints the report to a stream on a fixed period from a daemon thread.
+     *
+     * @param out the stream to print to
+     * @param period the time between reports
+     * @param unit the unit of period
+     * @return a future that stops the reports when cancelled
+     * @throws IllegalArgumentException if out or unit is null, or period is not positive
+     */
+    public ScheduledFuture<?> dumpEvery(final PrintStream out,
+                                        final long period,
+                                        final TimeUnit unit) {
+        if (out == null || unit == null || period <= 0) {
+            throw new IllegalArgumentException("Invalid report stream or period");
+        }
+        return REPORTER.scheduleAtFixedRate(() -> out.print(getReport()), period, period, unit);
+    }
+}
@@ -0,0 +1,86 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * The JMX view of AccountMetrics.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public interface AccountMetricsMXBean {
+
+    /**
+     * Returns the number of deposits attempted.
+     *
+     * @return the deposit count
+     */
+    long getDepositCount();
+
+    /**
+     * Returns the number of withdrawals attempted without a PIN.
+     *
+     * @return the withdrawal count
+     */
+    long getWithdrawalCount();
+
+    /**
+     * Returns the number of withdrawals attempted with a PIN.
+     *
+     * @return the PIN withdrawal count
+     */
+    long getPinWithdrawalCount();
+
+    /**
+     * Returns the number of account details rendered.
+     *
+     * @return the details count
+     */
+    long getDetailsCount();
+
+    /**
+     * Returns the number of operations rejected for a non-positive or invalid amount.
+     *
+     * @return the rejection count
+     */
+    long getInvalidAmountCount();
+
+    /**
+     * Returns the number of withdrawals rejected for insufficient funds.
+     *
+     * @return the rejection count
+     */
+    long getInsufficientFundsCount();
+
+    /**
+     * Returns the number of withdrawals rejected for a wrong PIN.
+     *
+     * @return the rejection count
+     */
+    long getWrongPinCount();
+
+    /**
+     * Returns the number of withdrawals refused because the account was locked out.
+     *
+     * @return the rejection count
+     */
+    long getLockedOutCount();
+
+    /**
+     * Returns the number of deposits rejected because the balance would overflow.
+     *
+     * @return the rejection count
+     */
+    long getOverflowCount();
+
+    /**
+     * Returns every counter and latency percentile as text.
+     *
+     * @return the report
+     */
+    String getReport();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
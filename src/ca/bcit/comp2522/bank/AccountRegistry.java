@@ -0,0 +1,199 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An in-memory index of bank accounts.
+ * Accounts can be looked up in constant time by account number or
+ * by the client ID of their owner. IDs are encoded into longs and
+ * stored in open-addressing tables of primitives, so the index
+ * itself holds no String or boxed keys.
+ * <p>
+ * This class is not thread-safe; callers that register accounts from
+ * several threads must synchronize externally.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public class AccountRegistry {
+
+    /** Marks the end of a client's chain of accounts. */
+    private static final int END_OF_CHAIN = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /** Approximate size of one array reference slot in bytes. */
+    private static final int REFERENCE_BYTES = 4;
+
+    private final LongIntHashMap byAccountNumber;
+    private final LongIntHashMap firstByClient;
+
+    private BankAccount[] accounts;
+    private int[] nextByClient;
+    private int size;
+
+    /**
+     * Constructs an empty registry.
+     */
+    public AccountRegistry() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty registry sized for an expected number of accounts.
+     *
+     * @param expectedAccounts the number of accounts expected
+     * @throws IllegalArgumentException if expectedAccounts is negative
+     */
+    public AccountRegistry(final int expectedAccounts) {
+        if (expectedAccounts < 0) {
+            throw new IllegalArgumentException("expectedAccounts cannot be negative");
+        }
+
+        final int capacity = Math.max(DEFAULT_CAPACITY, expectedAccounts);
+
+        byAccountNumber = new LongIntHashMap(capacity);
+        firstByClient = new LongIntHashMap(capacity);
+        accounts = new BankAccount[capacity];
+        nextByClient = new int[capacity];
+    }
+
+    /**
+     * Adds an account to the registry.
+     *
+     * @param account the account to add
+     * @return the index assigned to the account
+     * @throws IllegalArgumentException if the account is null, has an ID
+     *         that cannot be indexed, or its account number is already registered
+     */
+    public int add(final BankAccount account) {
+        if (account == null) {
+            throw new IllegalArgumentException("account cannot be null");
+        }
+
+        final long numberKey = IdCodec.encode(account.getAccountNumber());
+        final long clientKey = IdCodec.encode(account.getClient().getClientID());
+
+        if (numberKey == IdCodec.NO_KEY || clientKey == IdCodec.NO_KEY) {
+            throw new IllegalArgumentException("IDs must be ASCII: " + account.getAccountNumber());
+        }
+        if (byAccountNumber.get(numberKey) != LongIntHashMap.MISSING) {
+            throw new IllegalArgumentException("Duplicate account number: "
+                    + account.getAccountNumber());
+        }
+
+        if (size == accounts.length) {
+            accounts = Arrays.copyOf(accounts, size << 1);
+            nextByClient = Arrays.copyOf(nextByClient, size << 1);
+        }
+
+        final int index = size++;
+        final int previousFirst = firstByClient.put(clientKey, index);
+
+        accounts[index] = account;
+        nextByClient[index] = previousFirst == LongIntHashMap.MISSING ? END_OF_CHAIN : previousFirst;
+        byAccountNumber.put(numberKey, index);
+
+        return index;
+    }
+
+    /**
+     * Returns the account with the given account number.
+     *
+     * @param accountNumber the account number to look up
+     * @return the account, or null if none is registered
+     */
+    public BankAccount findByAccountNumber(final String accountNumber) {
+        final int index = indexOf(accountNumber);
+
+        return index == LongIntHashMap.MISSING ? null : accounts[index];
+    }
+
+    /**
+     * Returns the index of the account with the given account number.
+     *
+     * @param accountNumber the account number to look up
+     * @return the index, or -1 if none is registered
+     */
+    public int indexOf(final String accountNumber) {
+        final long key = IdCodec.encode(accountNumber);
+
+        return key == IdCodec.NO_KEY ? LongIntHashMap.MISSING : indexOfKey(key);
+    }
+
+    /**
+     * Returns the index of the account with an account number already encoded by IdCodec.
+     *
+     * @param accountKey the encoded account number
+     * @return the index, or -1 if none is registered
+     */
+    int indexOfKey(final long accountKey) {
+        return byAccountNumber.get(accountKey);
+    }
+
+    /**
+     * Returns every account owned by the client with the given ID,
+     * most recently registered first.
+     *
+     * @param clientID the client ID to look up
+     * @return the client's accounts (empty if there are none)
+     */
+    public List<BankAccount> findByClientID(final String clientID) {
+        final List<BankAccount> found = new ArrayList<>();
+        final long key = IdCodec.encode(clientID);
+
+        if (key != IdCodec.NO_KEY) {
+            for (int i = firstByClient.get(key); i != END_OF_CHAIN; i = nextByClient[i]) {
+                found.add(accounts[i]);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Returns the account at an index.
+     *
+     * @param index the index returned by add
+     * @return the account
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public BankAccount get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        }
+        return accounts[index];
+    }
+
+    /**
+     * Returns the number of registered accounts.
+     *
+     * @return the number of accounts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the memory used by the index per registered account.
+     * This counts the hash tables and arrays owned by the registry,
+     * not the accounts themselves.
+     *
+     * @return the index footprint in bytes per account (0 if empty)
+     */
+    public double bytesPerEntry() {
+        if (size == 0) {
+            return 0;
+        }
+
+        final long bytes = byAccountNumber.tableBytes()
+                + firstByClient.tableBytes()
+                + (long) accounts.length * REFERENCE_BYTES
+                + (long) nextByClient.length * Integer.BYTES;
+
+        return (double) bytes / size;
+    }
+}
@@ -0,0 +1,98 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An in-process request front end for the accounts in a registry.
+ * Every request runs on its own virtual thread, so a caller can keep
+ * hundreds of thousands of sessions in flight without a pool of platform
+ * threads. Outcomes are delivered through CompletableFutures.
+ * <p>
+ * The registry must not be modified while the service is serving requests.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public class AccountService implements AutoCloseable {
+
+    private final AccountRegistry registry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Constructs a service over the accounts of a registry.
+     *
+     * @param registry the accounts to serve
+     * @throws IllegalArgumentException if the registry is null
+     */
+    public AccountService(final AccountRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("registry cannot be null");
+        }
+        this.registry = registry;
+    }
+
+    /**
+     * Deposits an amount into an account.
+     *
+     * @param accountNumber the account to deposit into
+     * @param amountCents the amount in cents
+     * @return a future completed with the outcome, or failed with an
+     *         IllegalArgumentException if the account does not exist
+     */
+    public CompletableFuture<TransactionStatus> deposit(final String accountNumber,
+                                                        final long amountCents) {
+        return CompletableFuture.supplyAsync(
+                () -> find(accountNumber).tryDeposit(amountCents), executor);
+    }
+
+    /**
+     * Withdraws an amount from an account after verifying its PIN.
+     *
+     * @param accountNumber the account to withdraw from
+     * @param amountCents the amount in cents
+     * @param pin the PIN used for verification
+     * @return a future completed with the outcome, or failed with an
+     *         IllegalArgumentException if the account does not exist
+     */
+    public CompletableFuture<TransactionStatus> withdraw(final String accountNumber,
+                                                         final long amountCents,
+                                                         final int pin) {
+        return CompletableFuture.supplyAsync(
+                () -> find(accountNumber).tryWithdraw(amountCents, pin), executor);
+    }
+
+    /**
+     * Looks up the details of an account.
+     *
+     * @param accountNumber the account to describe
+     * @return a future completed with getDetails of the account, or failed
+     *         with an IllegalArgumentException if the account does not exist
+     */
+    public CompletableFuture<String> getDetails(final String accountNumber) {
+        return CompletableFuture.supplyAsync(() -> find(accountNumber).getDetails(), executor);
+    }
+
+    /*
+     * Returns the registered account with a number, or throws if there is none.
+     */
+    private BankAccount find(final String accountNumber) {
+        final BankAccount account = registry.findByAccountNumber(accountNumber);
+
+        if (account == null) {
+            throw new IllegalArgumentException("Unknown account: " + accountNumber);
+        }
+
+        return account;
+    }
+
+    /**
+     * Stops accepting requests and waits for those in flight to finish.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,652 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A binary snapshot of a whole book of clients and accounts, and a loader
+ * that memory-maps it and builds objects only when they are first used.
+ * <p>
+ * The file holds a 32-byte header, fixed-width client records, fixed-width
+ * account records sorted by account number, a table of the non-zero foreign
+ * sub-balances grouped by account, and a table of UTF-8 name bytes. Each
+ * account record points at its first foreign entry, so an account with only
+ * USD costs nothing extra. Each client record holds the 64-bit offset of its
+ * first name in the name table, with the last name following it, and the
+ * name table is mapped in windows like the records, so a file may hold more
+ * than 2 GB of names. Version 2 files, with 32-bit name offsets, and version
+ * 1 files, written before the foreign table existed and holding only USD
+ * balances, still open.
+ * Opening a snapshot only maps the file, so a book of any size is usable at
+ * once: accounts can be found by binary search over the mapped records, read
+ * through primitive accessors, and turned into BankAccounts one at a time.
+ * Each record is materialized at most once, so every caller sees the same
+ * BankAccount and BankClient instances. Snapshots opened as trusted skip
+ * the validation done by the public constructors; untrusted ones also check
+ * every name offset and length, client index and foreign entry against the
+ * tables before building anything from it. The writer refuses a book that
+ * does not fit the format instead of wrapping a count or offset.
+ * <p>
+ * PINs are stored as their salt and keyed hash. The key is not in the file,
+ * so a snapshot only verifies PINs in a process started with the same
+ * pepper (see PinCredential).
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class AccountSnapshot {
+
+    /** Epoch day stored for a missing date. */
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final int MAGIC = 0x424B5331;
+    private static final int VERSION = 3;
+    private static final int INT_NAME_OFFSET_VERSION = 2;
+    private static final int USD_ONLY_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    /* Client record layout */
+    private static final int CLIENT_BYTES = 32;
+    private static final int CLIENT_KEY = 0;
+    private static final int NAME_OFFSET = 8;
+    private static final int FIRST_OFFSET = 8;
+    private static final int LAST_OFFSET = 12;
+    private static final int FIRST_LENGTH = 16;
+    private static final int LAST_LENGTH = 18;
+    private static final int BIRTH_DAY = 20;
+    private static final int DEATH_DAY = 24;
+    private static final int SIGNUP_DAY = 28;
+
+    /** Longest first or last name, in UTF-8 bytes, that a record can hold. */
+    static final int MAX_NAME_BYTES = Short.MAX_VALUE;
+
+    /* Account record layout */
+    private static final int ACCOUNT_BYTES = 56;
+    private static final int ACCOUNT_KEY = 0;
+    private static final int SALT = 8;
+    private static final int HASH_HIGH = 16;
+    private static final int HASH_LOW = 24;
+    private static final int BALANCE = 32;
+    private static final int OPENED_DAY = 40;
+    private static final int CLOSED_DAY = 44;
+    private static final int CLIENT_INDEX = 48;
+    private static final int FOREIGN_FIRST = 52;
+
+    /* Foreign sub-balance record layout */
+    private static final int FOREIGN_BYTES = 16;
+    private static final int FOREIGN_ACCOUNT = 0;
+    private static final int FOREIGN_CURRENCY = 4;
+    private static final int FOREIGN_BALANCE = 8;
+
+    /** FOREIGN_FIRST of an account that holds only USD; otherwise the entry index + 1. */
+    private static final int NO_FOREIGN = 0;
+
+    private static final CurrencyCode[] CURRENCIES = CurrencyCode.values();
+
+    /** Records per mapped window, small enough that every window is under 2 GB. */
+    private static final int MAP_SHIFT = 24;
+    private static final int MAP_MASK = (1 << MAP_SHIFT) - 1;
+
+    /**
+     * Name bytes per mapped window. Each window also maps the two longest
+     * names past its end, so a client's names never straddle two windows.
+     */
+    private static final int NAME_SHIFT = 30;
+    private static final long NAME_MASK = (1L << NAME_SHIFT) - 1;
+    private static final int NAME_OVERLAP = 2 * MAX_NAME_BYTES;
+
+    /** Records per lazily allocated block of materialized objects. */
+    private static final int CACHE_SHIFT = 16;
+    private static final int CACHE_MASK = (1 << CACHE_SHIFT) - 1;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final int clientCount;
+    private final int accountCount;
+    private final int foreignCount;
+    private final boolean trusted;
+    private final boolean longNameOffsets;
+    private final long nameBytes;
+    private final MappedByteBuffer[] clientRecords;
+    private final MappedByteBuffer[] accountRecords;
+    private final MappedByteBuffer[] foreignRecords;
+    private final MappedByteBuffer[] names;
+    private final AtomicReferenceArray<AtomicReferenceArray<BankClient>> clients;
+    private final AtomicReferenceArray<AtomicReferenceArray<BankAccount>> accounts;
+
+    private AccountSnapshot(final FileChannel channel, final boolean trusted) throws IOException {
+        final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an account snapshot");
+        }
+
+        final int version = header.getInt();
+
+        if (version != VERSION && version != INT_NAME_OFFSET_VERSION && version != USD_ONLY_VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+
+        this.clientCount = header.getInt();
+        this.accountCount = header.getInt();
+        this.foreignCount = version == USD_ONLY_VERSION ? 0 : header.getInt();
+        this.trusted = trusted;
+        this.longNameOffsets = version == VERSION;
+
+        if (clientCount < 0 || accountCount < 0 || foreignCount < 0) {
+            throw new IOException("Corrupt snapshot: negative record count");
+        }
+
+        final long accountsStart = HEADER_BYTES + (long) clientCount * CLIENT_BYTES;
+        final long foreignStart = accountsStart + (long) accountCount * ACCOUNT_BYTES;
+        final long namesStart = foreignStart + (long) foreignCount * FOREIGN_BYTES;
+
+        if (namesStart > channel.size()) {
+            throw new IOException("Corrupt snapshot: records run past the end of the file");
+        }
+
+        this.nameBytes = channel.size() - namesStart;
+        clientRecords = mapRecords(channel, HEADER_BYTES, clientCount, CLIENT_BYTES);
+        accountRecords = mapRecords(channel, accountsStart, accountCount, ACCOUNT_BYTES);
+        foreignRecords = mapRecords(channel, foreignStart, foreignCount, FOREIGN_BYTES);
+        names = mapNames(channel, namesStart, nameBytes);
+        clients = new AtomicReferenceArray<>(blocksFor(clientCount));
+        accounts = new AtomicReferenceArray<>(blocksFor(accountCount));
+    }
+
+    /**
+     * Opens a snapshot, validating every object as it is materialized.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static AccountSnapshot open(final Path file) throws IOException {
+        return open(file, false);
+    }
+
+    /**
+     * Opens a snapshot.
+     *
+     * @param file the snapshot file
+     * @param trusted true to skip validation because the file was written
+     *        from already validated objects
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static AccountSnapshot open(final Path file, final boolean trusted) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new AccountSnapshot(channel, trusted);
+        }
+    }
+
+    /**
+     * Returns the number of accounts in the snapshot.
+     *
+     * @return the account count
+     */
+    public int getAccountCount() {
+        return accountCount;
+    }
+
+    /**
+     * Returns the number of clients in the snapshot.
+     *
+     * @return the client count
+     */
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Finds an account by number using binary search over the mapped records.
+     *
+     * @param accountNumber the account number
+     * @return the account's index, or -1 if it is not in the snapshot
+     */
+    public int indexOf(final String accountNumber) {
+        final long key = IdCodec.encode(accountNumber);
+        int low = 0;
+        int high = accountCount - 1;
+
+        while (key != IdCodec.NO_KEY && low <= high) {
+            final int mid = (low + high) >>> 1;
+            final long midKey = accountLong(mid, ACCOUNT_KEY);
+
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return LongIntHashMap.MISSING;
+    }
+
+    /**
+     * Returns the balance stored for an account without materializing it.
+     *
+     * @param index the account's index
+     * @return the balance in cents when the snapshot was written
+     */
+    public long getBalanceCents(final int index) {
+        return accountLong(checkAccount(index), BALANCE);
+    }
+
+    /**
+     * Returns the account at an index, building it on first use.
+     *
+     * @param index the account's index (accounts are ordered by account number)
+     * @return the account
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the snapshot is untrusted and the
+     *         record fails validation
+     */
+    public BankAccount getAccount(final int index) {
+        final AtomicReferenceArray<BankAccount> block = block(accounts, checkAccount(index));
+        final BankAccount existing = block.get(index & CACHE_MASK);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final BankAccount created = readAccount(index);
+
+        return block.compareAndSet(index & CACHE_MASK, null, created)
+                ? created
+                : block.get(index & CACHE_MASK);
+    }
+
+    /**
+     * Returns the client at an index, building it on first use.
+     *
+     * @param index the client's index
+     * @return the client
+     * @throws IndexOutOfBoundsException if the index is out of range
+     * @throws IllegalArgumentException if the snapshot is untrusted and the
+     *         record fails validation
+     */
+    public BankClient getClient(final int index) {
+        if (index < 0 || index >= clientCount) {
+            throw new IndexOutOfBoundsException("Invalid client index: " + index);
+        }
+
+        final AtomicReferenceArray<BankClient> block = block(clients, index);
+        final BankClient existing = block.get(index & CACHE_MASK);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final BankClient created = readClient(index);
+
+        return block.compareAndSet(index & CACHE_MASK, null, created)
+                ? created
+                : block.get(index & CACHE_MASK);
+    }
+
+    /**
+     * Materializes every account into a new registry.
+     *
+     * @return a registry holding all accounts
+     */
+    public AccountRegistry toRegistry() {
+        final AccountRegistry registry = new AccountRegistry(accountCount);
+
+        for (int i = 0; i < accountCount; i++) {
+            registry.add(getAccount(i));
+        }
+
+        return registry;
+    }
+
+    /*
+     * Builds an account from its record.
+     */
+    private BankAccount readAccount(final int index) {
+        final ByteBuffer buffer = accountRecords[index >>> MAP_SHIFT];
+        final int base = (index & MAP_MASK) * ACCOUNT_BYTES;
+        final int clientIndex = buffer.getInt(base + CLIENT_INDEX);
+
+        if (!trusted && (clientIndex < 0 || clientIndex >= clientCount)) {
+            throw new IllegalArgumentException("Client index out of range: " + clientIndex);
+        }
+
+        final BankClient client = getClient(clientIndex);
+        final String accountNumber = IdCodec.decode(buffer.getLong(base + ACCOUNT_KEY));
+        final Date opened = toDate(buffer.getInt(base + OPENED_DAY));
+        final Date closed = toDate(buffer.getInt(base + CLOSED_DAY));
+        final PinCredential pin = new PinCredential(buffer.getLong(base + SALT),
+                buffer.getLong(base + HASH_HIGH),
+                buffer.getLong(base + HASH_LOW));
+        final long balance = buffer.getLong(base + BALANCE);
+
+        if (!trusted) {
+            BankAccount.validate(client, accountNumber);
+        }
+
+        final BankAccount account = new BankAccount(client, pin, accountNumber, opened, closed, balance);
+        final int first = buffer.getInt(base + FOREIGN_FIRST);
+
+        if (!trusted && (first < NO_FOREIGN || first > foreignCount)) {
+            throw new IllegalArgumentException("Foreign entry out of range for account #" + accountNumber);
+        }
+        if (first != NO_FOREIGN) {
+            restoreForeign(account, index, first - 1);
+        }
+        return account;
+    }
+
+    /*
+     * Adds an account's foreign sub-balances, which start at a given entry of
+     * the foreign table and run while the entries name the account.
+     */
+    private void restoreForeign(final BankAccount account, final int index, final int first) {
+        for (int entry = first; entry < foreignCount; entry++) {
+            final ByteBuffer buffer = foreignRecords[entry >>> MAP_SHIFT];
+            final int base = (entry & MAP_MASK) * FOREIGN_BYTES;
+
+            if (buffer.getInt(base + FOREIGN_ACCOUNT) != index) {
+                return;
+            }
+
+            final int currency = buffer.getInt(base + FOREIGN_CURRENCY);
+
+            if (!trusted && (currency < 0 || currency >= CURRENCIES.length)) {
+                throw new IllegalArgumentException("Unknown currency in foreign entry " + entry);
+            }
+            account.applyCents(buffer.getLong(base + FOREIGN_BALANCE), CURRENCIES[currency]);
+        }
+    }
+
+    /*
+     * Builds a client from its record.
+     */
+    private BankClient readClient(final int index) {
+        final ByteBuffer buffer = clientRecords[index >>> MAP_SHIFT];
+        final int base = (index & MAP_MASK) * CLIENT_BYTES;
+        final int firstLength = buffer.getShort(base + FIRST_LENGTH);
+        final long firstOffset = longNameOffsets
+                ? buffer.getLong(base + NAME_OFFSET)
+                : Integer.toUnsignedLong(buffer.getInt(base + FIRST_OFFSET));
+        final long lastOffset = longNameOffsets
+                ? firstOffset + firstLength
+                : Integer.toUnsignedLong(buffer.getInt(base + LAST_OFFSET));
+        final String first = readName(firstOffset, firstLength);
+        final String last = readName(lastOffset, buffer.getShort(base + LAST_LENGTH));
+        final String clientID = IdCodec.decode(buffer.getLong(base + CLIENT_KEY));
+        final Date birth = toDate(buffer.getInt(base + BIRTH_DAY));
+        final Date death = toDate(buffer.getInt(base + DEATH_DAY));
+        final Date signup = toDate(buffer.getInt(base + SIGNUP_DAY));
+
+        if (trusted) {
+            return BankClient.trusted(Name.trusted(first, last), birth, death, clientID, signup);
+        }
+        return new BankClient(Name.of(first, last), birth, death, clientID, signup);
+    }
+
+    /*
+     * Reads a name from the window its first byte falls in, checking its
+     * bounds first when the snapshot is untrusted.
+     */
+    private String readName(final long offset, final int length) {
+        if (!trusted && (length < 0 || offset < 0 || offset > nameBytes - length)) {
+            throw new IllegalArgumentException("Name out of bounds: " + length + " bytes at " + offset);
+        }
+        if (length == 0) {
+            return "";
+        }
+
+        final byte[] bytes = new byte[length];
+
+        names[(int) (offset >>> NAME_SHIFT)].get((int) (offset & NAME_MASK), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long accountLong(final int index, final int field) {
+        return accountRecords[index >>> MAP_SHIFT].getLong((index & MAP_MASK) * ACCOUNT_BYTES + field);
+    }
+
+    private int checkAccount(final int index) {
+        if (index < 0 || index >= accountCount) {
+            throw new IndexOutOfBoundsException("Invalid account index: " + index);
+        }
+        return index;
+    }
+
+    private static Date toDate(final int epochDay) {
+        return epochDay == NO_DATE ? null : Date.ofEpochDay(epochDay);
+    }
+
+    private static int fromDate(final Date date) {
+        return date == null ? NO_DATE : date.getEpochDay();
+    }
+
+    private static int blocksFor(final int count) {
+        return (count + CACHE_MASK) >>> CACHE_SHIFT;
+    }
+
+    /*
+     * Returns the cache block holding an index, allocating it on first use.
+     */
+    private static <T> AtomicReferenceArray<T> block(
+            final AtomicReferenceArray<AtomicReferenceArray<T>> blocks, final int index) {
+        final int blockIndex = index >>> CACHE_SHIFT;
+        final AtomicReferenceArray<T> existing = blocks.get(blockIndex);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        blocks.compareAndSet(blockIndex, null, new AtomicReferenceArray<>(1 << CACHE_SHIFT));
+        return blocks.get(blockIndex);
+    }
+
+    /*
+     * Maps a table of fixed-width records as a series of windows.
+     */
+    private static MappedByteBuffer[] mapRecords(final FileChannel channel,
+                                                 final long start,
+                                                 final int count,
+                                                 final int recordBytes) throws IOException {
+        final MappedByteBuffer[] windows = new MappedByteBuffer[(count + MAP_MASK) >>> MAP_SHIFT];
+
+        for (int w = 0; w < windows.length; w++) {
+            final long first = (long) w << MAP_SHIFT;
+            final long records = Math.min(1L << MAP_SHIFT, count - first);
+
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY,
+                    start + first * recordBytes, records * recordBytes);
+        }
+
+        return windows;
+    }
+
+    /*
+     * Maps the name table as a series of windows, each overlapping the next by
+     * the longest pair of names.
+     */
+    private static MappedByteBuffer[] mapNames(final FileChannel channel,
+                                               final long start,
+                                               final long size) throws IOException {
+        final MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((size + NAME_MASK) >>> NAME_SHIFT)];
+
+        for (int w = 0; w < windows.length; w++) {
+            final long first = (long) w << NAME_SHIFT;
+            final long bytes = Math.min((1L << NAME_SHIFT) + NAME_OVERLAP, size - first);
+
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start + first, bytes);
+        }
+
+        return windows;
+    }
+
+    /**
+     * Writes every account of a registry, and the clients that own them, to a snapshot file.
+     *
+     * @param file the file to write (replaced if it exists)
+     * @param registry the accounts to save
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a name is longer than MAX_NAME_BYTES
+     *         or the book has more foreign sub-balances than the format can count;
+     *         nothing is written in that case
+     */
+    public static void write(final Path file, final AccountRegistry registry) throws IOException {
+        final long[] keys = new long[registry.size()];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = IdCodec.encode(registry.get(i).getAccountNumber());
+        }
+        Arrays.parallelSort(keys);
+
+        final Map<BankClient, Integer> clientIndex = new IdentityHashMap<>();
+        final BankAccount[] sorted = new BankAccount[keys.length];
+
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = registry.get(registry.indexOfKey(keys[i]));
+            clientIndex.putIfAbsent(sorted[i].getClient(), clientIndex.size());
+        }
+
+        final BankClient[] clientList = new BankClient[clientIndex.size()];
+        for (final Map.Entry<BankClient, Integer> entry : clientIndex.entrySet()) {
+            clientList[entry.getValue()] = entry.getKey();
+        }
+
+        final int[] firstLengths = new int[clientList.length];
+        final int[] lastLengths = new int[clientList.length];
+
+        for (int i = 0; i < clientList.length; i++) {
+            firstLengths[i] = nameLength(clientList[i].getName().getFirst());
+            lastLengths[i] = nameLength(clientList[i].getName().getLast());
+        }
+
+        final long[][] foreign = new long[sorted.length][];
+        long foreignTotal = 0;
+
+        for (int i = 0; i < sorted.length; i++) {
+            foreign[i] = foreignBalances(sorted[i]);
+            foreignTotal += countNonZero(foreign[i]);
+        }
+        if (foreignTotal >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many foreign sub-balances for one snapshot: " + foreignTotal);
+        }
+
+        final int foreignCount = (int) foreignTotal;
+
+        try (OutputStream stream = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_BYTES))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(clientList.length);
+            out.writeInt(sorted.length);
+            out.writeInt(foreignCount);
+            out.write(new byte[HEADER_BYTES - out.size()]);
+
+            long nameOffset = 0;
+
+            for (int i = 0; i < clientList.length; i++) {
+                final BankClient client = clientList[i];
+
+                out.writeLong(IdCodec.encode(client.getClientID()));
+                out.writeLong(nameOffset);
+                out.writeShort(firstLengths[i]);
+                out.writeShort(lastLengths[i]);
+                out.writeInt(fromDate(client.getBirthDate()));
+                out.writeInt(fromDate(client.getDeathDate()));
+                out.writeInt(fromDate(client.getSignupDate()));
+                nameOffset += firstLengths[i] + lastLengths[i];
+            }
+
+            int nextForeign = 0;
+
+            for (int i = 0; i < sorted.length; i++) {
+                final BankAccount account = sorted[i];
+                final PinCredential pin = account.getPinCredential();
+
+                out.writeLong(IdCodec.encode(account.getAccountNumber()));
+                out.writeLong(pin.getSalt());
+                out.writeLong(pin.getHashHigh());
+                out.writeLong(pin.getHashLow());
+                out.writeLong(account.getBalanceCents());
+                out.writeInt(fromDate(account.getAccountOpened()));
+                out.writeInt(fromDate(account.getAccountClosed()));
+                out.writeInt(clientIndex.get(account.getClient()));
+                out.writeInt(foreign[i] == null ? NO_FOREIGN : nextForeign + 1);
+                nextForeign += countNonZero(foreign[i]);
+            }
+
+            for (int i = 0; i < sorted.length; i++) {
+                for (int currency = 0; foreign[i] != null && currency < CURRENCIES.length; currency++) {
+                    if (foreign[i][currency] != 0) {
+                        out.writeInt(i);
+                        out.writeInt(currency);
+                        out.writeLong(foreign[i][currency]);
+                    }
+                }
+            }
+
+            for (final BankClient client : clientList) {
+                out.write(client.getName().getFirst().getBytes(StandardCharsets.UTF_8));
+                out.write(client.getName().getLast().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /*
+     * Reads an account's foreign sub-balances by currency ordinal once, so the
+     * count and the table agree, or returns null if it holds only USD.
+     */
+    private static long[] foreignBalances(final BankAccount account) {
+        long[] balances = null;
+
+        for (final CurrencyCode currency : CURRENCIES) {
+            final long balance = currency == CurrencyCode.USD ? 0 : account.getBalanceCents(currency);
+
+            if (balance != 0) {
+                if (balances == null) {
+                    balances = new long[CURRENCIES.length];
+                }
+                balances[currency.ordinal()] = balance;
+            }
+        }
+        return balances;
+    }
+
+    private static int countNonZero(final long[] balances) {
+        int count = 0;
+
+        for (int i = 0; balances != null && i < balances.length; i++) {
+            count += balances[i] == 0 ? 0 : 1;
+        }
+        return count;
+    }
+
+    /*
+     * Returns the UTF-8 length of a name, refusing one too long for its record field.
+     */
+    private static int nameLength(final String name) {
+        final int length = name.getBytes(StandardCharsets.UTF_8).length;
+
+        if (length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Name is " + length + " bytes; a snapshot holds at most "
+                    + MAX_NAME_BYTES);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,451 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A movable view on one account of an OffHeapAccountStore, with the same
+ * operations and rules as BankAccount.
+ * <p>
+ * A view holds no account data of its own, only where the current slot is,
+ * so one view can walk a whole store without allocating. Deposits, withdrawals
+ * and PIN checks run the same static code as BankAccount and PinCredential,
+ * through field updaters that reach the words of the current slot, so views
+ * on different threads can share an account safely and the rules cannot
+ * drift apart. A view itself is not thread-safe: give each thread its own.
+ * <p>
+ * Accounts in a store have no transaction listeners and do not report to
+ * AccountMetrics.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class AccountView {
+
+    private static final int NO_ACCOUNT = -1;
+
+    private static final AtomicLongFieldUpdater<AccountView> BALANCE =
+            new SlotField(OffHeapAccountStore.BALANCE);
+    private static final AtomicLongFieldUpdater<AccountView> PIN_STATE =
+            new SlotField(OffHeapAccountStore.PIN_STATE);
+    private static final AtomicLongFieldUpdater<AccountView> CACHED_TOKEN =
+            new PinCacheField(OffHeapAccountStore.CACHED_TOKEN);
+    private static final AtomicLongFieldUpdater<AccountView> CACHED_UNTIL =
+            new PinCacheField(OffHeapAccountStore.CACHED_UNTIL);
+
+    private final OffHeapAccountStore store;
+
+    private ByteBuffer buffer;
+    private int base;
+    private int index = NO_ACCOUNT;
+
+    /**
+     * Constructs a view that is not yet on any account.
+     *
+     * @param store the store to view
+     */
+    AccountView(final OffHeapAccountStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Moves the view to an account.
+     *
+     * @param accountIndex the account's index in the store
+     * @return this view
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public AccountView moveTo(final int accountIndex) {
+        store.checkIndex(accountIndex);
+
+        buffer = store.chunkOf(accountIndex);
+        base = OffHeapAccountStore.offsetOf(accountIndex);
+        index = accountIndex;
+        return this;
+    }
+
+    /**
+     * Moves the view to the account with a given number.
+     *
+     * @param accountNumber the account number
+     * @return true if the account exists; otherwise the view does not move
+     */
+    public boolean moveTo(final String accountNumber) {
+        final int found = store.indexOf(accountNumber);
+
+        if (found == LongIntHashMap.MISSING) {
+            return false;
+        }
+
+        moveTo(found);
+        return true;
+    }
+
+    /**
+     * Returns the index of the account the view is on.
+     *
+     * @return the index
+     * @throws IllegalStateException if the view has not been moved to an account
+     */
+    public int getIndex() {
+        checkPositioned();
+        return index;
+    }
+
+    private void checkPositioned() {
+        if (index == NO_ACCOUNT) {
+            throw new IllegalStateException("View is not on an account");
+        }
+    }
+
+    private long readLong(final int field) {
+        checkPositioned();
+        return buffer.getLong(base + field);
+    }
+
+    private int readInt(final int field) {
+        checkPositioned();
+        return buffer.getInt(base + field);
+    }
+
+    /**
+     * Deposits a positive amount of USD into the account.
+     *
+     * @param amountUSD the amount of money to deposit
+     * @throws IllegalArgumentException if the amount is
+     *         less than or equal to zero or not a finite number
+     * @throws ArithmeticException if the balance would overflow
+     */
+    public void deposit(final double amountUSD) {
+        depositCents(Money.toCents(amountUSD));
+    }
+
+    /**
+     * Deposits a positive amount of cents into the account.
+     *
+     * @param amountCents the amount of money to deposit in cents
+     * @throws IllegalArgumentException if the amount is
+     *         less than or equal to zero
+     * @throws ArithmeticException if the balance would overflow
+     */
+    public void depositCents(final long amountCents) {
+        final TransactionStatus status = tryDeposit(amountCents);
+
+        if (status == TransactionStatus.INVALID_AMOUNT) {
+            throw new IllegalArgumentException("must deposit more than 0 USD");
+        }
+        if (status == TransactionStatus.OVERFLOW) {
+            throw new ArithmeticException("balance overflow");
+        }
+    }
+
+    /**
+     * Withdraws a specified amount of USD from the account.
+     *
+     * @param amountUSD the amount of money to withdraw
+     * @throws IllegalArgumentException if the amount is less than or equal
+     *         to zero, not a finite number, or exceeds the account balance
+     */
+    public void withdraw(final double amountUSD) {
+        withdrawCents(Money.toCents(amountUSD));
+    }
+
+    /**
+     * Withdraws a specified amount of cents from the account.
+     *
+     * @param amountCents the amount of money to withdraw in cents
+     * @throws IllegalArgumentException if the amount is
+     *         less than or equal to zero or exceeds the account balance
+     */
+    public void withdrawCents(final long amountCents) {
+        BankAccount.throwIfRejected(tryWithdraw(amountCents));
+    }
+
+    /**
+     * Withdraws a specified amount of USD from the account
+     * after verifying the provided PIN.
+     *
+     * @param amountUSD the amount of money to withdraw
+     * @param pinToMatch the PIN used for verification
+     * @throws IllegalArgumentException if the PIN is incorrect, the account
+     *         is locked after too many wrong PINs, or the withdrawal amount is invalid
+     */
+    public void withdraw(final double amountUSD, final int pinToMatch) {
+        TransactionStatus status = verifyPin(pinToMatch);
+
+        if (status == TransactionStatus.SUCCESS) {
+            status = tryWithdraw(Money.toCents(amountUSD));
+        }
+        BankAccount.throwIfRejected(status);
+    }
+
+    /**
+     * Checks a PIN against the account's stored PIN hash without throwing.
+     * After several consecutive wrong PINs the account is locked for a while
+     * and every check is refused.
+     *
+     * @param pinToMatch the PIN to check
+     * @return SUCCESS, WRONG_PIN, or LOCKED_OUT
+     */
+    public TransactionStatus verifyPin(final int pinToMatch) {
+        checkPositioned();
+        return PinCredential.verify(this, PIN_STATE, CACHED_TOKEN, CACHED_UNTIL,
+                buffer.getLong(base + OffHeapAccountStore.SALT),
+                buffer.getLong(base + OffHeapAccountStore.HASH_HIGH),
+                buffer.getLong(base + OffHeapAccountStore.HASH_LOW),
+                pinToMatch);
+    }
+
+    /**
+     * Deposits an amount of cents without throwing on failure.
+     *
+     * @param amountCents the amount to deposit in cents
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         or OVERFLOW if the balance would no longer fit in a long
+     */
+    TransactionStatus tryDeposit(final long amountCents) {
+        checkPositioned();
+        return BankAccount.depositInto(BALANCE, this, amountCents);
+    }
+
+    /**
+     * Withdraws an amount of cents without throwing on failure.
+     * The overdraft check and the update happen in one compare-and-set,
+     * so concurrent withdrawals can never overdraw the account.
+     *
+     * @param amountCents the amount to withdraw in cents
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         or INSUFFICIENT_FUNDS if it exceeds the balance
+     */
+    TransactionStatus tryWithdraw(final long amountCents) {
+        checkPositioned();
+        return BankAccount.withdrawFrom(BALANCE, this, amountCents);
+    }
+
+    /**
+     * Verifies a PIN and then withdraws an amount of cents, without throwing on failure.
+     *
+     * @param amountCents the amount to withdraw in cents
+     * @param pinToMatch the PIN used for verification
+     * @return the PIN status if verification fails, otherwise the withdrawal outcome
+     */
+    TransactionStatus tryWithdraw(final long amountCents, final int pinToMatch) {
+        final TransactionStatus status = verifyPin(pinToMatch);
+
+        return status == TransactionStatus.SUCCESS ? tryWithdraw(amountCents) : status;
+    }
+
+    /**
+     * Returns the number of wrong PINs entered since the last success or lockout.
+     *
+     * @return the failure count
+     */
+    int getFailures() {
+        checkPositioned();
+        return PinCredential.failuresOf(PIN_STATE.get(this));
+    }
+
+    /**
+     * Returns the owner of the account.
+     *
+     * @return the BankClient that owns the account
+     */
+    public BankClient getClient() {
+        return store.clientAt(readInt(OffHeapAccountStore.CLIENT_INDEX));
+    }
+
+    /**
+     * Returns the account number.
+     *
+     * @return the account number
+     */
+    public String getAccountNumber() {
+        return IdCodec.decode(readLong(OffHeapAccountStore.KEY));
+    }
+
+    /**
+     * Returns the date the account was opened.
+     *
+     * @return the opening date, or null if none was recorded
+     */
+    public Date getAccountOpened() {
+        return toDate(readInt(OffHeapAccountStore.OPENED_DAY));
+    }
+
+    /**
+     * Returns the date the account was closed.
+     *
+     * @return the closing date, or null if the account is open
+     */
+    public Date getAccountClosed() {
+        return toDate(readInt(OffHeapAccountStore.CLOSED_DAY));
+    }
+
+    /**
+     * Returns whether the account is still open, without building a Date.
+     *
+     * @return true if the account has no closing date
+     */
+    public boolean isOpen() {
+        return readInt(OffHeapAccountStore.CLOSED_DAY) == OffHeapAccountStore.NO_DATE;
+    }
+
+    private static Date toDate(final int epochDay) {
+        return epochDay == OffHeapAccountStore.NO_DATE ? null : Date.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Returns the current balance of the account in USD.
+     *
+     * @return the balance in USD
+     */
+    public double getBalanceUSD() {
+        return Money.toDollars(getBalanceCents());
+    }
+
+    /**
+     * Returns the current balance of the account in cents.
+     *
+     * @return the exact balance in cents
+     */
+    public long getBalanceCents() {
+        checkPositioned();
+        return BALANCE.get(this);
+    }
+
+    /**
+     * Copies the account onto the heap as a BankAccount with the same number,
+     * dates, stored PIN and current balance. The copy is detached: later
+     * transactions on either side are not seen by the other.
+     *
+     * @return the copy
+     */
+    public BankAccount toAccount() {
+        return new BankAccount(getClient(),
+                new PinCredential(readLong(OffHeapAccountStore.SALT),
+                        readLong(OffHeapAccountStore.HASH_HIGH),
+                        readLong(OffHeapAccountStore.HASH_LOW)),
+                getAccountNumber(),
+                getAccountOpened(),
+                getAccountClosed(),
+                getBalanceCents());
+    }
+
+    /**
+     * Returns a formatted String containing details of the bank account.
+     *
+     * @return a String describing the account owner, balance,
+     *         account number, and open/close dates
+     */
+    public String getDetails() {
+        return appendDetails(new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends the same text as BankAccount.getDetails would for this account.
+     *
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendDetails(final StringBuilder out) {
+        final int closedDay = readInt(OffHeapAccountStore.CLOSED_DAY);
+
+        getClient().getName().appendFullName(out)
+                .append(" had $");
+        Money.appendTo(getBalanceCents(), out)
+                .append(" USD in account #")
+                .append(getAccountNumber())
+                .append(" which he opened on ");
+        Date.appendTo(getAccountOpened(), out);
+
+        if (closedDay != OffHeapAccountStore.NO_DATE) {
+            out.append(" and closed on ");
+            Date.ofEpochDay(closedDay).appendTo(out);
+        }
+
+        return out.append('.');
+    }
+
+    /*
+     * Reaches one long field of the slot a view is on, so the shared
+     * compare-and-set code can update it like a field of a heap object.
+     */
+    private static final class SlotField extends AtomicLongFieldUpdater<AccountView> {
+        private final int field;
+
+        private SlotField(final int field) {
+            this.field = field;
+        }
+
+        @Override
+        public long get(final AccountView view) {
+            return (long) OffHeapAccountStore.LONGS.getVolatile(view.buffer, view.base + field);
+        }
+
+        @Override
+        public void set(final AccountView view, final long value) {
+            OffHeapAccountStore.LONGS.setVolatile(view.buffer, view.base + field, value);
+        }
+
+        @Override
+        public void lazySet(final AccountView view, final long value) {
+            OffHeapAccountStore.LONGS.setRelease(view.buffer, view.base + field, value);
+        }
+
+        @Override
+        public boolean compareAndSet(final AccountView view, final long expect, final long update) {
+            return OffHeapAccountStore.LONGS.compareAndSet(view.buffer, view.base + field, expect, update);
+        }
+
+        @Override
+        public boolean weakCompareAndSet(final AccountView view, final long expect, final long update) {
+            return OffHeapAccountStore.LONGS.weakCompareAndSetPlain(view.buffer, view.base + field,
+                    expect, update);
+        }
+    }
+
+    /*
+     * Reaches one long field of the PIN cache entry for the slot a view is on.
+     */
+    private static final class PinCacheField extends AtomicLongFieldUpdater<AccountView> {
+        private final int field;
+
+        private PinCacheField(final int field) {
+            this.field = field;
+        }
+
+        private static ByteBuffer cache(final AccountView view) {
+            return view.store.pinCache();
+        }
+
+        private int offset(final AccountView view) {
+            return OffHeapAccountStore.pinCacheOffset(view.index) + field;
+        }
+
+        @Override
+        public long get(final AccountView view) {
+            return (long) OffHeapAccountStore.LONGS.getVolatile(cache(view), offset(view));
+        }
+
+        @Override
+        public void set(final AccountView view, final long value) {
+            OffHeapAccountStore.LONGS.setVolatile(cache(view), offset(view), value);
+        }
+
+        @Override
+        public void lazySet(final AccountView view, final long value) {
+            OffHeapAccountStore.LONGS.setRelease(cache(view), offset(view), value);
+        }
+
+        @Override
+        public boolean compareAndSet(final AccountView view, final long expect, final long update) {
+            return OffHeapAccountStore.LONGS.compareAndSet(cache(view), offset(view), expect, update);
+        }
+
+        @Override
+        public boolean weakCompareAndSet(final AccountView view, final long expect, final long update) {
+            return OffHeapAccountStore.LONGS.weakCompareAndSetPlain(cache(view), offset(view), expect, update);
+        }
+    }
+}
@@ -1,9 +1,29 @@
 package ca.bcit.comp2522.bank;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.LongUnaryOperator;
+
 /**
  * Represents a bank account owned by a BankClient.
  * A bank account has an account number, a PIN, a balance in USD,
  * an opening date, and an optional closing date.
+ * <p>
+ * The balance is held exactly as a whole number of cents and updated with
+ * compare-and-set, so deposits and withdrawals are atomic and lock-free
+ * when an account is shared between threads.
+ * <p>
+ * Besides its USD balance an account can hold a sub-balance in each other
+ * CurrencyCode. The sub-balances are created together on the first foreign
+ * deposit, so accounts that only ever hold USD pay for one null field, and
+ * they follow the same compare-and-set rules as the USD balance. Changes to
+ * them are reported to transaction listeners through onForeignTransaction,
+ * so a journal can replay them; an exchange is reported as a withdrawal in
+ * one currency and a deposit in the other. USD amounts passed to the
+ * currency overloads take the same path as the plain USD methods.
  *
  * @author Brian Lau
  * @author Giant Mak
@@ -11,19 +31,37 @@ package ca.bcit.comp2522.bank;
  */
 public class BankAccount {
 
-    /** Minimum allowed length of an account number. */
-    private static final int MIN_ACCOUNT_LENGTH = 6;
+    /** Shared by every account that has no listeners. */
+    private static final TransactionListener[] NO_LISTENERS = new TransactionListener[0];
+
+    /** Updater used to compare-and-set the balance without a lock. */
+    private static final AtomicLongFieldUpdater<BankAccount> BALANCE =
+            AtomicLongFieldUpdater.newUpdater(BankAccount.class, "balanceCents");
+
+    /** Updater used to claim each month's interest exactly once. */
+    private static final AtomicIntegerFieldUpdater<BankAccount> ACCRUED_MONTH =
+            AtomicIntegerFieldUpdater.newUpdater(BankAccount.class, "accruedMonth");
 
-    /** Maximum allowed length of an account number. */
-    private static final int MAX_ACCOUNT_LENGTH = 7;
+    /** Updater used to create the foreign sub-balances exactly once. */
+    private static final AtomicReferenceFieldUpdater<BankAccount, AtomicLongArray> FOREIGN =
+            AtomicReferenceFieldUpdater.newUpdater(BankAccount.class, AtomicLongArray.class, "foreignCents");
+
+    private static final CurrencyCode[] CURRENCIES = CurrencyCode.values();
 
     private final BankClient client;
-    private final int pin;
+    private final PinCredential pin;
     private final String accountNumber;
     private final Date accountOpened;
     private final Date accountClosed;
 
-    private double balanceUSD;
+    private volatile long balanceCents;
+    private volatile TransactionListener[] listeners = NO_LISTENERS;
+
+    /** The last month interest was accrued for, as year * 12 + month - 1, or 0 if none. */
+    private volatile int accruedMonth;
+
+    /** Balance in minor units per currency ordinal (the USD entry is unused), or null. */
+    private volatile AtomicLongArray foreignCents;
 
     /**
      * Constructs a BankAccount with the client details.
@@ -42,14 +80,41 @@ public class BankAccount {
                        final String accountNumber,
                        final Date accountOpened,
                        final Date accountClosed) {
+        this(client, PinCredential.of(pin), accountNumber, accountOpened, accountClosed, 0L, true);
+    }
 
-        if (client == null) {
-            throw new IllegalArgumentException("client cannot be null");
-        }
-        if (accountNumber == null
-                || accountNumber.length() < MIN_ACCOUNT_LENGTH
-                || accountNumber.length() > MAX_ACCOUNT_LENGTH) {
-            throw new IllegalArgumentException("Invalid account number");
+    /**
+     * Constructs a BankAccount from a trusted source, such as a snapshot written
+     * from already validated accounts, without validating it again.
+     *
+     * @param client the owner of the bank account
+     * @param pin the stored PIN credential
+     * @param accountNumber the account number
+     * @param accountOpened the date the account was opened
+     * @param accountClosed the date the account was closed (may be null)
+     * @param balanceCents the starting balance in cents
+     */
+    BankAccount(final BankClient client,
+                final PinCredential pin,
+                final String accountNumber,
+                final Date accountOpened,
+                final Date accountClosed,
+                final long balanceCents) {
+        this(client, pin, accountNumber, accountOpened, accountClosed, balanceCents, false);
+    }
+
+    /*
+     * Constructs an account, validating its fields only when asked to.
+     */
+    private BankAccount(final BankClient client,
+                        final PinCredential pin,
+                        final String accountNumber,
+                        final Date accountOpened,
+                        final Date accountClosed,
+                        final long balanceCents,
+                        final boolean validate) {
+        if (validate) {
+            validate(client, accountNumber);
         }
 
         this.client = client;
@@ -57,6 +122,33 @@ public class BankAccount {
         this.accountNumber = accountNumber;
         this.accountOpened = accountOpened;
         this.accountClosed = accountClosed;
+        this.balanceCents = balanceCents;
+    }
+
+    /**
+     * Checks the fields the public constructor requires.
+     *
+     * @param client the owner of the bank account
+     * @param accountNumber the account number
+     * @throws IllegalArgumentException if the client is null or
+     *         the account number length is invalid
+     */
+    static void validate(final BankClient client, final String accountNumber) {
+        if (client == null) {
+            throw new IllegalArgumentException("client cannot be null");
+        }
+        if (!Validation.isValidId(accountNumber)) {
+            throw new IllegalArgumentException("Invalid account number");
+        }
+    }
+
+    /**
+     * Returns the stored PIN credential.
+     *
+     * @return the credential
+     */
+    PinCredential getPinCredential() {
+        return pin;
     }
 
     /**
@@ -64,31 +156,78 @@ public class BankAccount {
      *
      * @param amountUSD the amount of money to deposit
      * @throws IllegalArgumentException if the amount is
-     *         less than or equal to zero
+     *         less than or equal to zero or not a finite number
+     * @throws ArithmeticException if the balance would overflow
      */
     public void deposit(final double amountUSD) {
-        if (amountUSD <= 0) {
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+        final long amountCents;
+
+        try {
+            amountCents = Money.toCents(amountUSD);
+        } catch (final IllegalArgumentException e) {
+            AccountMetrics.record(metrics, AccountMetrics.Operation.DEPOSIT,
+                    TransactionStatus.INVALID_AMOUNT, start);
+            throw e;
+        }
+        throwIfDepositRejected(AccountMetrics.record(metrics, AccountMetrics.Operation.DEPOSIT,
+                applyDeposit(amountCents), start));
+    }
+
+    /**
+     * Deposits a positive amount of cents into the account.
+     *
+     * @param amountCents the amount of money to deposit in cents
+     * @throws IllegalArgumentException if the amount is
+     *         less than or equal to zero
+     * @throws ArithmeticException if the balance would overflow
+     */
+    public void depositCents(final long amountCents) {
+        throwIfDepositRejected(tryDeposit(amountCents));
+    }
+
+    private static void throwIfDepositRejected(final TransactionStatus status) {
+        if (status == TransactionStatus.INVALID_AMOUNT) {
             throw new IllegalArgumentException("must deposit more than 0 USD");
         }
-        balanceUSD += amountUSD;
+        if (status == TransactionStatus.OVERFLOW) {
+            throw new ArithmeticException("balance overflow");
+        }
     }
 
     /**
      * Withdraws a specified amount of USD from the account.
      *
      * @param amountUSD the amount of money to withdraw
-     * @throws IllegalArgumentException if the amount is
-     *         less than or equal to zero or exceeds the account balance
+     * @throws IllegalArgumentException if the amount is less than or equal
+     *         to zero, not a finite number, or exceeds the account balance
      */
     public void withdraw(final double amountUSD) {
-        if (amountUSD <= 0) {
-            throw new IllegalArgumentException("withdrawal must be more than 0 USD");
-        }
-        if (amountUSD > balanceUSD) {
-            throw new IllegalArgumentException("Insufficient funds");
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+        final long amountCents;
+
+        try {
+            amountCents = Money.toCents(amountUSD);
+        } catch (final IllegalArgumentException e) {
+            AccountMetrics.record(metrics, AccountMetrics.Operation.WITHDRAWAL,
+                    TransactionStatus.INVALID_AMOUNT, start);
+            throw e;
         }
+        throwIfRejected(AccountMetrics.record(metrics, AccountMetrics.Operation.WITHDRAWAL,
+                applyWithdrawal(amountCents), start));
+    }
 
-        balanceUSD -= amountUSD;
+    /**
+     * Withdraws a specified amount of cents from the account.
+     *
+     * @param amountCents the amount of money to withdraw in cents
+     * @throws IllegalArgumentException if the amount is
+     *         less than or equal to zero or exceeds the account balance
+     */
+    public void withdrawCents(final long amountCents) {
+        throwIfRejected(tryWithdraw(amountCents));
     }
 
     /**
@@ -97,14 +236,624 @@ public class BankAccount {
      *
      * @param amountUSD the amount of money to withdraw
      * @param pinToMatch the PIN used for verification
-     * @throws IllegalArgumentException if the PIN is incorrect
-     *         or the withdrawal amount is invalid
+     * @throws IllegalArgumentException if the PIN is incorrect, the account
+     *         is locked after too many wrong PINs, or the withdrawal amount is invalid
      */
     public void withdraw(final double amountUSD, final int pinToMatch) {
-        if (pin != pinToMatch) {
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+        TransactionStatus status = verifyPin(pinToMatch);
+
+        if (status == TransactionStatus.SUCCESS) {
+            final long amountCents;
+
+            try {
+                amountCents = Money.toCents(amountUSD);
+            } catch (final IllegalArgumentException e) {
+                AccountMetrics.record(metrics, AccountMetrics.Operation.PIN_WITHDRAWAL,
+                        TransactionStatus.INVALID_AMOUNT, start);
+                throw e;
+            }
+            status = applyWithdrawal(amountCents);
+        }
+        throwIfRejected(AccountMetrics.record(metrics, AccountMetrics.Operation.PIN_WITHDRAWAL,
+                status, start));
+    }
+
+    /**
+     * Deposits a positive amount of a currency into the account's balance in
+     * that currency, without conversion.
+     *
+     * @param amountCents the amount in minor units of the currency
+     * @param currency the currency of the amount
+     * @throws IllegalArgumentException if currency is null or the amount is
+     *         less than or equal to zero
+     * @throws ArithmeticException if the balance would overflow
+     */
+    public void depositCents(final long amountCents, final CurrencyCode currency) {
+        checkCurrency(currency);
+
+        final TransactionStatus status = tryDeposit(amountCents, currency);
+
+        if (status == TransactionStatus.INVALID_AMOUNT) {
+            throw new IllegalArgumentException("must deposit more than 0 " + currency);
+        }
+        if (status == TransactionStatus.OVERFLOW) {
+            throw new ArithmeticException("balance overflow");
+        }
+    }
+
+    /**
+     * Withdraws an amount of a currency from the account's balance in that
+     * currency, without conversion.
+     *
+     * @param amountCents the amount in minor units of the currency
+     * @param currency the currency of the amount
+     * @throws IllegalArgumentException if currency is null, or the amount is
+     *         less than or equal to zero or exceeds the balance in that currency
+     */
+    public void withdrawCents(final long amountCents, final CurrencyCode currency) {
+        checkCurrency(currency);
+        throwIfRejected(tryWithdraw(amountCents, currency));
+    }
+
+    /**
+     * Converts part of the balance in one currency into another at the
+     * table's current rate.
+     *
+     * @param amountCents the amount to take, in minor units of from
+     * @param from the currency to take the amount from
+     * @param to the currency to credit the converted amount to
+     * @param rates the exchange rates to use
+     * @return the amount credited, in minor units of to
+     * @throws IllegalArgumentException if an argument is null, the amount is
+     *         not positive or exceeds the balance in from, converts to
+     *         nothing, or there is no rate between the currencies
+     * @throws ArithmeticException if the converted amount or new balance would overflow
+     * @throws IllegalStateException if the credit failed and the amount taken
+     *         could not be put back
+     */
+    public long exchange(final long amountCents,
+                         final CurrencyCode from,
+                         final CurrencyCode to,
+                         final FxRateTable rates) {
+        checkCurrency(from);
+        checkCurrency(to);
+        if (rates == null) {
+            throw new IllegalArgumentException("rates cannot be null");
+        }
+
+        final long rate = rates.getRate(from, to);
+        final TransactionStatus status = tryExchange(amountCents, from, to, rate);
+
+        if (status == TransactionStatus.OVERFLOW) {
+            throw new ArithmeticException("balance overflow");
+        }
+        throwIfRejected(status);
+        return FxRateTable.applyRate(amountCents, rate);
+    }
+
+    private static void checkCurrency(final CurrencyCode currency) {
+        if (currency == null) {
+            throw new IllegalArgumentException("currency cannot be null");
+        }
+    }
+
+    /**
+     * Turns a failed withdrawal outcome into the exception the public methods throw.
+     *
+     * @param status the outcome of a withdrawal or PIN check
+     * @throws IllegalArgumentException if the outcome is a rejection
+     */
+    static void throwIfRejected(final TransactionStatus status) {
+        if (status == TransactionStatus.LOCKED_OUT) {
+            throw new IllegalArgumentException("Too many wrong pins, account locked");
+        }
+        if (status == TransactionStatus.WRONG_PIN) {
             throw new IllegalArgumentException("Wrong pin!");
         }
-        withdraw(amountUSD);
+        if (status == TransactionStatus.INVALID_AMOUNT) {
+            throw new IllegalArgumentException("withdrawal must be more than 0 USD");
+        }
+        if (status == TransactionStatus.INSUFFICIENT_FUNDS) {
+            throw new IllegalArgumentException("Insufficient funds");
+        }
+        if (status == TransactionStatus.NO_RATE) {
+            throw new IllegalArgumentException("No exchange rate available");
+        }
+        if (status == TransactionStatus.LIMIT_EXCEEDED) {
+            throw new IllegalArgumentException("Withdrawal limit exceeded");
+        }
+    }
+
+    /**
+     * Checks a PIN against the account's stored PIN hash without throwing.
+     * After several consecutive wrong PINs the account is locked for a while
+     * and every check is refused.
+     *
+     * @param pinToMatch the PIN to check
+     * @return SUCCESS, WRONG_PIN, or LOCKED_OUT
+     */
+    public TransactionStatus verifyPin(final int pinToMatch) {
+        return pin.verify(pinToMatch);
+    }
+
+    /**
+     * Deposits an amount of cents without throwing on failure.
+     * The outcome is recorded in the installed AccountMetrics as a deposit.
+     *
+     * @param amountCents the amount to deposit in cents
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         or OVERFLOW if the balance would no longer fit in a long
+     */
+    TransactionStatus tryDeposit(final long amountCents) {
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+
+        return AccountMetrics.record(metrics, AccountMetrics.Operation.DEPOSIT,
+                applyDeposit(amountCents), start);
+    }
+
+    /**
+     * Withdraws an amount of cents without throwing on failure.
+     * The outcome is recorded in the installed AccountMetrics as a withdrawal.
+     *
+     * @param amountCents the amount to withdraw in cents
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         or INSUFFICIENT_FUNDS if it exceeds the balance
+     */
+    TransactionStatus tryWithdraw(final long amountCents) {
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+
+        return AccountMetrics.record(metrics, AccountMetrics.Operation.WITHDRAWAL,
+                applyWithdrawal(amountCents), start);
+    }
+
+    /**
+     * Verifies a PIN and then withdraws an amount of cents, without throwing on failure.
+     * The outcome is recorded in the installed AccountMetrics as a PIN withdrawal.
+     *
+     * @param amountCents the amount to withdraw in cents
+     * @param pinToMatch the PIN used for verification
+     * @return the PIN status if verification fails, otherwise the withdrawal outcome
+     */
+    TransactionStatus tryWithdraw(final long amountCents, final int pinToMatch) {
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+        TransactionStatus status = verifyPin(pinToMatch);
+
+        if (status == TransactionStatus.SUCCESS) {
+            status = applyWithdrawal(amountCents);
+        }
+        return AccountMetrics.record(metrics, AccountMetrics.Operation.PIN_WITHDRAWAL, status, start);
+    }
+
+    /*
+     * Adds a positive amount to the balance with compare-and-set and tells the listeners.
+     */
+    private TransactionStatus applyDeposit(final long amountCents) {
+        final TransactionStatus status = depositInto(BALANCE, this, amountCents);
+
+        if (status == TransactionStatus.SUCCESS) {
+            notifyListeners(TransactionType.DEPOSIT, amountCents);
+        }
+        return status;
+    }
+
+    /**
+     * Takes a positive amount from the balance and tells the listeners,
+     * without recording the outcome in AccountMetrics; callers that run their
+     * own checks first, such as WithdrawalPipeline, record it themselves. The
+     * overdraft check and the update happen in one compare-and-set, so
+     * concurrent withdrawals can never overdraw the account.
+     *
+     * @param amountCents the amount to withdraw in cents
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         or INSUFFICIENT_FUNDS if it exceeds the balance
+     */
+    TransactionStatus applyWithdrawal(final long amountCents) {
+        final TransactionStatus status = withdrawFrom(BALANCE, this, amountCents);
+
+        if (status == TransactionStatus.SUCCESS) {
+            notifyListeners(TransactionType.WITHDRAWAL, amountCents);
+        }
+        return status;
+    }
+
+    /**
+     * Adds a positive amount to a balance with compare-and-set. BankAccount
+     * and AccountView both deposit through this, each with an updater for
+     * where it keeps the balance.
+     *
+     * @param balance the updater for the balance
+     * @param holder the object that holds the balance
+     * @param amountCents the amount to add
+     * @param <T> the type that holds the balance
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         or OVERFLOW if the balance would no longer fit in a long
+     */
+    static <T> TransactionStatus depositInto(final AtomicLongFieldUpdater<T> balance,
+                                             final T holder,
+                                             final long amountCents) {
+        if (amountCents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+
+        long current;
+
+        do {
+            current = balance.get(holder);
+            if (current > Long.MAX_VALUE - amountCents) {
+                return TransactionStatus.OVERFLOW;
+            }
+        } while (!balance.compareAndSet(holder, current, current + amountCents));
+
+        return TransactionStatus.SUCCESS;
+    }
+
+    /**
+     * Takes a positive amount from a balance with compare-and-set. The
+     * overdraft check and the update happen in one compare-and-set, so
+     * concurrent withdrawals can never overdraw the account.
+     *
+     * @param balance the updater for the balance
+     * @param holder the object that holds the balance
+     * @param amountCents the amount to take
+     * @param <T> the type that holds the balance
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         or INSUFFICIENT_FUNDS if it exceeds the balance
+     */
+    static <T> TransactionStatus withdrawFrom(final AtomicLongFieldUpdater<T> balance,
+                                              final T holder,
+                                              final long amountCents) {
+        if (amountCents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+
+        long current;
+
+        do {
+            current = balance.get(holder);
+            if (amountCents > current) {
+                return TransactionStatus.INSUFFICIENT_FUNDS;
+            }
+        } while (!balance.compareAndSet(holder, current, current - amountCents));
+
+        return TransactionStatus.SUCCESS;
+    }
+
+    /**
+     * Deposits one month of interest, unless that month or a later one has
+     * already been accrued. The month is claimed first, so two runs for the
+     * same month pay it once. The interest is then computed from the balance
+     * it is added to, in the same compare-and-set, so a withdrawal racing the
+     * accrual is never paid interest. The outcome is recorded in the installed
+     * AccountMetrics as a deposit.
+     *
+     * @param month the month, as year * 12 + month - 1
+     * @param interestOn the interest owed on a balance, in cents
+     * @return the interest deposited, or 0 if the month was already accrued,
+     *         no interest is owed, or the deposit would overflow
+     */
+    long accrueInterest(final int month, final LongUnaryOperator interestOn) {
+        int claimed;
+
+        do {
+            claimed = accruedMonth;
+            if (claimed >= month) {
+                return 0;
+            }
+        } while (!ACCRUED_MONTH.compareAndSet(this, claimed, month));
+
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+        long current;
+        long interest;
+
+        do {
+            current = balanceCents;
+            interest = interestOn.applyAsLong(current);
+            if (interest <= 0) {
+                return 0;
+            }
+            if (current > Long.MAX_VALUE - interest) {
+                AccountMetrics.record(metrics, AccountMetrics.Operation.DEPOSIT,
+                        TransactionStatus.OVERFLOW, start);
+                return 0;
+            }
+        } while (!BALANCE.compareAndSet(this, current, current + interest));
+
+        notifyListeners(TransactionType.DEPOSIT, interest);
+        AccountMetrics.record(metrics, AccountMetrics.Operation.DEPOSIT, TransactionStatus.SUCCESS, start);
+        return interest;
+    }
+
+    /**
+     * Deposits an amount of a currency without throwing on failure.
+     *
+     * @param amountCents the amount in minor units of the currency
+     * @param currency the currency of the amount
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         or OVERFLOW if the balance would no longer fit in a long
+     */
+    TransactionStatus tryDeposit(final long amountCents, final CurrencyCode currency) {
+        if (currency == CurrencyCode.USD) {
+            return tryDeposit(amountCents);
+        }
+        if (amountCents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+
+        final AtomicLongArray balances = foreignBalances();
+        final int slot = currency.ordinal();
+        long current;
+
+        do {
+            current = balances.get(slot);
+            if (current > Long.MAX_VALUE - amountCents) {
+                return TransactionStatus.OVERFLOW;
+            }
+        } while (!balances.compareAndSet(slot, current, current + amountCents));
+
+        notifyListeners(TransactionType.DEPOSIT, amountCents, currency);
+
+        return TransactionStatus.SUCCESS;
+    }
+
+    /**
+     * Withdraws an amount of a currency without throwing on failure.
+     *
+     * @param amountCents the amount in minor units of the currency
+     * @param currency the currency of the amount
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         or INSUFFICIENT_FUNDS if it exceeds the balance in that currency
+     */
+    TransactionStatus tryWithdraw(final long amountCents, final CurrencyCode currency) {
+        if (currency == CurrencyCode.USD) {
+            return tryWithdraw(amountCents);
+        }
+        if (amountCents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+
+        final AtomicLongArray balances = foreignCents;
+        final int slot = currency.ordinal();
+        long current;
+
+        do {
+            current = balances == null ? 0 : balances.get(slot);
+            if (amountCents > current) {
+                return TransactionStatus.INSUFFICIENT_FUNDS;
+            }
+        } while (!balances.compareAndSet(slot, current, current - amountCents));
+
+        notifyListeners(TransactionType.WITHDRAWAL, amountCents, currency);
+
+        return TransactionStatus.SUCCESS;
+    }
+
+    /**
+     * Converts part of one sub-balance into another without throwing on failure.
+     * The withdrawal and deposit are two separate compare-and-sets; if the
+     * deposit fails the withdrawal is put back.
+     *
+     * @param amountCents the amount to take, in minor units of from
+     * @param from the currency to take the amount from
+     * @param to the currency to credit
+     * @param rate the rate from FxRateTable.getRate for the pair
+     * @return SUCCESS, NO_RATE, INVALID_AMOUNT if the amount is not positive
+     *         or converts to nothing, INSUFFICIENT_FUNDS, or OVERFLOW
+     * @throws IllegalStateException if the deposit failed and a concurrent
+     *         deposit left no room to put the withdrawal back
+     */
+    TransactionStatus tryExchange(final long amountCents,
+                                  final CurrencyCode from,
+                                  final CurrencyCode to,
+                                  final long rate) {
+        if (rate == FxRateTable.NO_RATE) {
+            return TransactionStatus.NO_RATE;
+        }
+        if (amountCents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+
+        final long converted = FxRateTable.applyRate(amountCents, rate);
+
+        if (converted == FxRateTable.OVERFLOWED) {
+            return TransactionStatus.OVERFLOW;
+        }
+        if (converted == 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+
+        final TransactionStatus taken = tryWithdraw(amountCents, from);
+
+        if (taken != TransactionStatus.SUCCESS) {
+            return taken;
+        }
+
+        final TransactionStatus credited = tryDeposit(converted, to);
+
+        // A lock-free deposit racing the exchange could leave no room to put the money back
+        if (credited != TransactionStatus.SUCCESS
+                && tryDeposit(amountCents, from) != TransactionStatus.SUCCESS) {
+            throw new IllegalStateException("Exchange could not be undone: " + amountCents
+                    + " " + from + " withdrawn from account #" + accountNumber + " were not returned");
+        }
+        return credited;
+    }
+
+    /*
+     * Returns the foreign sub-balances, creating them on first use.
+     */
+    private AtomicLongArray foreignBalances() {
+        final AtomicLongArray existing = foreignCents;
+
+        if (existing != null) {
+            return existing;
+        }
+
+        FOREIGN.compareAndSet(this, null, new AtomicLongArray(CURRENCIES.length));
+        return foreignCents;
+    }
+
+    /**
+     * Registers a listener to be told about every successful deposit and withdrawal.
+     *
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if the listener is null
+     */
+    public synchronized void addTransactionListener(final TransactionListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener cannot be null");
+        }
+
+        final TransactionListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    /*
+     * Tells each registered listener about a transaction that has been applied.
+     */
+    private void notifyListeners(final TransactionType type, final long amountCents) {
+        for (final TransactionListener listener : listeners) {
+            listener.onTransaction(this, type, amountCents);
+        }
+    }
+
+    /*
+     * Tells each registered listener about a change to a foreign sub-balance.
+     */
+    private void notifyListeners(final TransactionType type,
+                                 final long amountCents,
+                                 final CurrencyCode currency) {
+        for (final TransactionListener listener : listeners) {
+            listener.onForeignTransaction(this, type, amountCents, currency);
+        }
+    }
+
+    /*
+     * Adds a signed amount to the balance without any checks or listener calls.
+     * Used when rebuilding balances from a record of past transactions.
+     */
+    void applyCents(final long deltaCents) {
+        BALANCE.getAndAdd(this, deltaCents);
+    }
+
+    /*
+     * Adds a signed amount to the balance in a currency without any checks or
+     * listener calls. Used when rebuilding balances from a journal or snapshot.
+     */
+    void applyCents(final long deltaCents, final CurrencyCode currency) {
+        if (currency == CurrencyCode.USD) {
+            applyCents(deltaCents);
+        } else {
+            foreignBalances().getAndAdd(currency.ordinal(), deltaCents);
+        }
+    }
+
+    /**
+     * Returns the owner of the account.
+     *
+     * @return the BankClient that owns the account
+     */
+    public BankClient getClient() {
+        return client;
+    }
+
+    /**
+     * Returns the account number.
+     *
+     * @return the account number
+     */
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    /**
+     * Returns the date the account was opened.
+     *
+     * @return the opening date
+     */
+    public Date getAccountOpened() {
+        return accountOpened;
+    }
+
+    /**
+     * Returns the date the account was closed.
+     *
+     * @return the closing date, or null if the account is open
+     */
+    public Date getAccountClosed() {
+        return accountClosed;
+    }
+
+    /**
+     * Returns the current balance of the account in USD.
+     *
+     * @return the balance in USD
+     */
+    public double getBalanceUSD() {
+        return Money.toDollars(balanceCents);
+    }
+
+    /**
+     * Returns the current balance of the account in cents.
+     *
+     * @return the exact balance in cents
+     */
+    public long getBalanceCents() {
+        return balanceCents;
+    }
+
+    /**
+     * Returns the balance held in one currency.
+     *
+     * @param currency the currency
+     * @return the balance in minor units of the currency
+     * @throws IllegalArgumentException if currency is null
+     */
+    public long getBalanceCents(final CurrencyCode currency) {
+        checkCurrency(currency);
+        if (currency == CurrencyCode.USD) {
+            return balanceCents;
+        }
+
+        final AtomicLongArray balances = foreignCents;
+
+        return balances == null ? 0 : balances.get(currency.ordinal());
+    }
+
+    /**
+     * Returns the value of every sub-balance converted into one currency at
+     * the table's current rates.
+     *
+     * @param currency the currency to express the total in
+     * @param rates the exchange rates to use
+     * @return the total in minor units of the currency
+     * @throws IllegalArgumentException if an argument is null or a held
+     *         currency has no rate
+     * @throws ArithmeticException if the total does not fit in a long
+     */
+    public long getTotalCents(final CurrencyCode currency, final FxRateTable rates) {
+        checkCurrency(currency);
+        if (rates == null) {
+            throw new IllegalArgumentException("rates cannot be null");
+        }
+
+        long total = 0;
+
+        for (final CurrencyCode held : CURRENCIES) {
+            final long balance = getBalanceCents(held);
+
+            if (balance != 0) {
+                total = Money.add(total, rates.convert(balance, held, currency));
+            }
+        }
+
+        return total;
     }
 
     /**
@@ -114,18 +863,35 @@ public class BankAccount {
      *         account number, and open/close dates
      */
     public String getDetails() {
-        String closeStatus;
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+        final String details = appendDetails(new StringBuilder()).toString();
 
-        if(accountClosed == null) {
-            closeStatus = "";
-        } else {
-            closeStatus = " and closed on " + accountClosed;
+        AccountMetrics.record(metrics, AccountMetrics.Operation.DETAILS, TransactionStatus.SUCCESS, start);
+        return details;
+    }
+
+    /**
+     * Appends the same text as getDetails to a builder without creating
+     * any intermediate Strings.
+     *
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendDetails(final StringBuilder out) {
+        client.getName().appendFullName(out)
+                .append(" had $");
+        Money.appendTo(balanceCents, out)
+                .append(" USD in account #")
+                .append(accountNumber)
+                .append(" which he opened on ");
+        Date.appendTo(accountOpened, out);
+
+        if (accountClosed != null) {
+            out.append(" and closed on ");
+            accountClosed.appendTo(out);
         }
 
-        return client.getName().getFullName()
-                + " had $" + balanceUSD + " USD in account #"
-                + accountNumber
-                + " which he opened on " + accountOpened
-                + closeStatus + ".";
+        return out.append('.');
     }
 }
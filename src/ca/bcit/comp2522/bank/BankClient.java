@@ -11,12 +11,6 @@ package ca.bcit.comp2522.bank;
  */
 public class BankClient {
 
-    /** Minimum allowed length of a client ID. */
-    private static final int MIN_ID_LENGTH = 6;
-
-    /** Maximum allowed length of a client ID. */
-    private static final int MAX_ID_LENGTH = 7;
-
     private final Name name;
     private final Date birthDate;
     private final Date deathDate;
@@ -40,27 +34,67 @@ public class BankClient {
                       final Date deathDate,
                       final String clientID,
                       final Date signupDate) {
+        this(name, birthDate, deathDate, clientID, signupDate, true);
+    }
+
+    /*
+     * Constructs a client, validating its fields only when asked to.
+     */
+    private BankClient(final Name name,
+                       final Date birthDate,
+                       final Date deathDate,
+                       final String clientID,
+                       final Date signupDate,
+                       final boolean validate) {
+        if (validate) {
+            validate(name, birthDate, clientID, signupDate);
+        }
+
+        this.name = name;
+        this.birthDate = birthDate;
+        this.deathDate = deathDate;
+        this.clientID = clientID;
+        this.signupDate = signupDate;
+    }
+
+    /**
+     * Constructs a client from a trusted source, such as a snapshot written
+     * from already validated clients, without validating it again.
+     *
+     * @param name the client's name
+     * @param birthDate the client's date of birth
+     * @param deathDate the client's date of death (may be null if alive)
+     * @param clientID the client's ID
+     * @param signupDate the date the client joined the bank
+     * @return the client
+     */
+    static BankClient trusted(final Name name,
+                              final Date birthDate,
+                              final Date deathDate,
+                              final String clientID,
+                              final Date signupDate) {
+        return new BankClient(name, birthDate, deathDate, clientID, signupDate, false);
+    }
 
+    /*
+     * Checks the fields of a client, throwing IllegalArgumentException for the first invalid one.
+     */
+    private static void validate(final Name name,
+                                 final Date birthDate,
+                                 final String clientID,
+                                 final Date signupDate) {
         if (name == null) {
             throw new IllegalArgumentException("Name cannot be null");
         }
         if (birthDate == null) {
             throw new IllegalArgumentException("Birth cannot be null");
         }
-        if (clientID == null
-                || clientID.length() < MIN_ID_LENGTH
-                || clientID.length() > MAX_ID_LENGTH) {
+        if (!Validation.isValidId(clientID)) {
             throw new IllegalArgumentException("clientID must be between 6 and 7 characters");
         }
         if (signupDate == null) {
             throw new IllegalArgumentException("signupDate cannot be null");
         }
-
-        this.name = name;
-        this.birthDate = birthDate;
-        this.deathDate = deathDate;
-        this.clientID = clientID;
-        this.signupDate = signupDate;
     }
 
     /**
@@ -72,6 +106,42 @@ public class BankClient {
         return name;
     }
 
+    /**
+     * Returns the client's date of birth.
+     *
+     * @return the birth date
+     */
+    public Date getBirthDate() {
+        return birthDate;
+    }
+
+    /**
+     * Returns the client's date of death.
+     *
+     * @return the death date, or null if the client is alive
+     */
+    public Date getDeathDate() {
+        return deathDate;
+    }
+
+    /**
+     * Returns the date the client joined the bank.
+     *
+     * @return the signup date
+     */
+    public Date getSignupDate() {
+        return signupDate;
+    }
+
+    /**
+     * Returns the client's ID.
+     *
+     * @return the client ID
+     */
+    public String getClientID() {
+        return clientID;
+    }
+
     /**
      * Determines whether the client is alive.
      *
@@ -88,24 +158,29 @@ public class BankClient {
      *         and bank signup date
      */
     public String getDetails() {
-        String status;
+        return appendDetails(new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends the same text as getDetails to a builder without creating
+     * any intermediate Strings.
+     *
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendDetails(final StringBuilder out) {
+        name.appendFullName(out)
+                .append(" client #").append(clientID).append(' ');
 
         if (isAlive()) {
-            status = "(alive)";
+            out.append("(alive)");
         } else {
-            status = "(died " + deathDate.getDayOfWeek() + ", "
-                    + deathDate.getMonthName() + " "
-                    + deathDate.getDay() + ", "
-                    + deathDate.getYear() + ")";
+            out.append("(died ");
+            deathDate.appendTo(out).append(')');
         }
 
-        return name.getFullName()
-                + " client #" + clientID + " "
-                + status
-                + " joined the bank on "
-                + signupDate.getDayOfWeek() + ", "
-                + signupDate.getMonthName() + " "
-                + signupDate.getDay() + ", "
-                + signupDate.getYear();
+        out.append(" joined the bank on ");
+
+        return signupDate.appendTo(out);
     }
 }
@@ -0,0 +1,91 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies large batches of transactions across many BankAccounts.
+ * Transactions are grouped by account and each account's transactions are
+ * applied together, in their original order, in a single pass. Failures are
+ * recorded as status codes in the result instead of being thrown.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class BatchProcessor {
+
+    private BatchProcessor() {
+    }
+
+    /**
+     * Applies a batch of transactions.
+     *
+     * @param transactions the transactions to apply
+     * @return the outcome of each transaction, in the same order
+     * @throws IllegalArgumentException if the list or any transaction is null
+     */
+    public static BatchResult process(final List<Transaction> transactions) {
+        if (transactions == null) {
+            throw new IllegalArgumentException("transactions cannot be null");
+        }
+        return process(transactions.toArray(new Transaction[0]));
+    }
+
+    /**
+     * Applies a batch of transactions.
+     *
+     * @param transactions the transactions to apply
+     * @return the outcome of each transaction, in the same order
+     * @throws IllegalArgumentException if the array or any transaction is null
+     */
+    public static BatchResult process(final Transaction[] transactions) {
+        if (transactions == null) {
+            throw new IllegalArgumentException("transactions cannot be null");
+        }
+
+        final int[] groupOf = new int[transactions.length];
+        final Map<BankAccount, Integer> groups = new IdentityHashMap<>();
+
+        for (int i = 0; i < transactions.length; i++) {
+            if (transactions[i] == null) {
+                throw new IllegalArgumentException("transaction " + i + " is null");
+            }
+
+            final Integer group = groups.putIfAbsent(transactions[i].getAccount(), groups.size());
+            groupOf[i] = group == null ? groups.size() - 1 : group;
+        }
+
+        final byte[] codes = new byte[transactions.length];
+
+        for (final int i : orderByGroup(groupOf, groups.size())) {
+            codes[i] = transactions[i].apply().getCode();
+        }
+
+        return new BatchResult(codes);
+    }
+
+    /*
+     * Counting-sorts transaction positions by group, keeping submission order
+     * within each group, so one account's transactions are applied back to back.
+     */
+    private static int[] orderByGroup(final int[] groupOf, final int groupCount) {
+        final int[] start = new int[groupCount + 1];
+
+        for (final int group : groupOf) {
+            start[group + 1]++;
+        }
+        for (int g = 0; g < groupCount; g++) {
+            start[g + 1] += start[g];
+        }
+
+        final int[] order = new int[groupOf.length];
+
+        for (int i = 0; i < groupOf.length; i++) {
+            order[start[groupOf[i]]++] = i;
+        }
+
+        return order;
+    }
+}
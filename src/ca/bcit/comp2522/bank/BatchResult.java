@@ -0,0 +1,68 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * The outcomes of a batch of transactions, one status code per transaction
+ * in the order the transactions were submitted.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class BatchResult {
+
+    private final byte[] codes;
+
+    BatchResult(final byte[] codes) {
+        this.codes = codes;
+    }
+
+    /**
+     * Returns the number of transactions in the batch.
+     *
+     * @return the batch size
+     */
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Returns the outcome of one transaction.
+     *
+     * @param index the position of the transaction in the batch
+     * @return the outcome
+     * @throws ArrayIndexOutOfBoundsException if the index is out of range
+     */
+    public TransactionStatus getStatus(final int index) {
+        return TransactionStatus.fromCode(codes[index]);
+    }
+
+    /**
+     * Returns whether one transaction was applied.
+     *
+     * @param index the position of the transaction in the batch
+     * @return true if the transaction succeeded
+     * @throws ArrayIndexOutOfBoundsException if the index is out of range
+     */
+    public boolean isSuccess(final int index) {
+        return codes[index] == TransactionStatus.SUCCESS.getCode();
+    }
+
+    /**
+     * Counts the transactions that ended with a given outcome.
+     *
+     * @param status the outcome to count
+     * @return the number of transactions with that outcome
+     */
+    public int count(final TransactionStatus status) {
+        final byte code = status.getCode();
+        int count = 0;
+
+        for (final byte c : codes) {
+            if (c == code) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
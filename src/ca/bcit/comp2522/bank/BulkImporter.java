@@ -0,0 +1,390 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Imports clients and accounts from onboarding files.
+ * <p>
+ * A file is memory-mapped and cut into chunks at line boundaries, and the
+ * chunks are parsed in parallel straight from the mapped bytes. Every row is
+ * validated by the public Name, Date, BankClient and BankAccount constructors,
+ * so imported records obey the same rules as hand-built ones. A row that fails
+ * is reported with its line number and the rest of the file is still imported.
+ * Blank lines and lines starting with '#' are skipped.
+ * <p>
+ * Client rows hold first name, last name, birth date, death date (empty if
+ * alive), client ID and signup date. Account rows hold client ID, account
+ * number, PIN, opened date, closed date (empty if open) and an optional
+ * starting balance in dollars. Dates are written yyyy-mm-dd. In CSV files the
+ * fields are separated by commas. In fixed-width files they are padded with
+ * trailing spaces to widths of 20, 20, 10, 10, 7 and 10 bytes for clients
+ * and 7, 7, 10, 10, 10 and 16 bytes for accounts.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class BulkImporter {
+
+    /** The layouts an import file may use. */
+    public enum Format {
+        /** Comma-separated fields. */
+        CSV,
+        /** Fields padded to fixed widths. */
+        FIXED_WIDTH
+    }
+
+    /* Field widths of fixed-width rows */
+    private static final int[] CLIENT_WIDTHS = {20, 20, 10, 10, 7, 10};
+    private static final int[] ACCOUNT_WIDTHS = {7, 7, 10, 10, 10, 16};
+
+    private static final int CHUNK_BYTES = 1 << 22;
+    private static final int SCAN_BYTES = 1 << 13;
+    private static final byte NEWLINE = '\n';
+    private static final byte COMMENT = '#';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    /* Client fields */
+    private static final int FIRST_NAME = 0;
+    private static final int LAST_NAME = 1;
+    private static final int BIRTH_DATE = 2;
+    private static final int DEATH_DATE = 3;
+    private static final int CLIENT_ID = 4;
+    private static final int SIGNUP_DATE = 5;
+
+    /* Account fields */
+    private static final int OWNER_ID = 0;
+    private static final int ACCOUNT_NUMBER = 1;
+    private static final int PIN = 2;
+    private static final int OPENED_DATE = 3;
+    private static final int CLOSED_DATE = 4;
+    private static final int BALANCE = 5;
+
+    private BulkImporter() {
+    }
+
+    /**
+     * Imports clients. Rows whose client ID repeats an earlier row are rejected.
+     *
+     * @param file the file to read
+     * @param format the layout of the file
+     * @return the imported clients and the rejected rows
+     * @throws IOException if the file cannot be read
+     */
+    public static ImportResult<BankClient> importClients(final Path file,
+                                                         final Format format) throws IOException {
+        final Parsed<BankClient> parsed = parse(file, format, CLIENT_WIDTHS, BulkImporter::toClient);
+        final LongIntHashMap seen = new LongIntHashMap(parsed.records.size());
+        final List<BankClient> unique = new ArrayList<>(parsed.records.size());
+
+        for (int i = 0; i < parsed.records.size(); i++) {
+            final BankClient client = parsed.records.get(i);
+            final long key = IdCodec.encode(client.getClientID());
+
+            if (key != IdCodec.NO_KEY && seen.get(key) != LongIntHashMap.MISSING) {
+                parsed.errors.add(new ImportError(parsed.lines[i],
+                        "Duplicate client ID " + client.getClientID()));
+            } else {
+                if (key != IdCodec.NO_KEY) {
+                    seen.put(key, i);
+                }
+                unique.add(client);
+            }
+        }
+
+        return parsed.toResult(unique);
+    }
+
+    /**
+     * Imports accounts and adds them to a registry in file order. Rows whose
+     * client ID is not among the given clients, or whose account number is
+     * already registered, are rejected.
+     *
+     * @param file the file to read
+     * @param format the layout of the file
+     * @param clients the clients the accounts may belong to
+     * @param registry the registry to add the accounts to
+     * @return the imported accounts and the rejected rows
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if clients or registry is null
+     */
+    public static ImportResult<BankAccount> importAccounts(final Path file,
+                                                           final Format format,
+                                                           final List<BankClient> clients,
+                                                           final AccountRegistry registry)
+            throws IOException {
+        if (clients == null || registry == null) {
+            throw new IllegalArgumentException("clients and registry cannot be null");
+        }
+
+        final LongIntHashMap owners = new LongIntHashMap(clients.size());
+
+        for (int i = 0; i < clients.size(); i++) {
+            final long key = IdCodec.encode(clients.get(i).getClientID());
+
+            if (key != IdCodec.NO_KEY) {
+                owners.put(key, i);
+            }
+        }
+
+        final Parsed<BankAccount> parsed = parse(file, format, ACCOUNT_WIDTHS,
+                row -> toAccount(row, clients, owners));
+        final List<BankAccount> added = new ArrayList<>(parsed.records.size());
+
+        for (int i = 0; i < parsed.records.size(); i++) {
+            try {
+                registry.add(parsed.records.get(i));
+                added.add(parsed.records.get(i));
+            } catch (final IllegalArgumentException e) {
+                parsed.errors.add(new ImportError(parsed.lines[i], e.getMessage()));
+            }
+        }
+
+        return parsed.toResult(added);
+    }
+
+    private static BankClient toClient(final ImportRow row) {
+        return new BankClient(Name.of(row.text(FIRST_NAME), row.text(LAST_NAME)),
+                row.date(BIRTH_DATE),
+                row.date(DEATH_DATE),
+                row.text(CLIENT_ID),
+                row.date(SIGNUP_DATE));
+    }
+
+    private static BankAccount toAccount(final ImportRow row,
+                                         final List<BankClient> clients,
+                                         final LongIntHashMap owners) {
+        final String ownerID = row.text(OWNER_ID);
+        final long key = IdCodec.encode(ownerID);
+        final int owner = key == IdCodec.NO_KEY ? LongIntHashMap.MISSING : owners.get(key);
+
+        if (owner == LongIntHashMap.MISSING) {
+            throw new IllegalArgumentException("Unknown client ID " + ownerID);
+        }
+
+        final long balanceCents = row.cents(BALANCE);
+
+        if (balanceCents < 0) {
+            throw new IllegalArgumentException("Balance cannot be negative");
+        }
+
+        final BankAccount account = new BankAccount(clients.get(owner),
+                row.intValue(PIN),
+                row.text(ACCOUNT_NUMBER),
+                row.date(OPENED_DATE),
+                row.date(CLOSED_DATE));
+
+        account.applyCents(balanceCents);
+        return account;
+    }
+
+    /*
+     * Maps the file, parses its chunks in parallel and joins their results in file order.
+     */
+    private static <T> Parsed<T> parse(final Path file,
+                                       final Format format,
+                                       final int[] widths,
+                                       final RowMapper<T> mapper) throws IOException {
+        if (file == null || format == null) {
+            throw new IllegalArgumentException("file and format cannot be null");
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long[] bounds = chunkBounds(channel);
+            final List<Parsed<T>> chunks;
+
+            try {
+                chunks = IntStream.range(0, bounds.length - 1)
+                        .parallel()
+                        .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1],
+                                format, widths, mapper))
+                        .toList();
+            } catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            return join(chunks);
+        }
+    }
+
+    /*
+     * Cuts the file into chunks of at least CHUNK_BYTES that each end just after a newline.
+     */
+    private static long[] chunkBounds(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final ByteBuffer scan = ByteBuffer.allocate(SCAN_BYTES);
+        final long[] bounds = new long[(int) (size / CHUNK_BYTES) + 2];
+        int count = 1;
+
+        while (size - bounds[count - 1] > CHUNK_BYTES) {
+            bounds[count] = nextLineStart(channel, scan, bounds[count - 1] + CHUNK_BYTES, size);
+            count++;
+        }
+        if (bounds[count - 1] < size) {
+            bounds[count++] = size;
+        }
+
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static long nextLineStart(final FileChannel channel,
+                                      final ByteBuffer scan,
+                                      final long from,
+                                      final long size) throws IOException {
+        long position = from;
+
+        while (position < size) {
+            scan.clear();
+            final int read = channel.read(scan, position);
+
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == NEWLINE) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+
+        return size;
+    }
+
+    private static <T> Parsed<T> parseChunk(final FileChannel channel,
+                                            final long start,
+                                            final long end,
+                                            final Format format,
+                                            final int[] widths,
+                                            final RowMapper<T> mapper) {
+        final MappedByteBuffer bytes;
+
+        try {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final int limit = bytes.limit();
+        final ImportRow row = new ImportRow(bytes, widths.length);
+        final Parsed<T> chunk = new Parsed<>();
+        int lineStart = 0;
+
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+
+            while (lineEnd < limit && bytes.get(lineEnd) != NEWLINE) {
+                lineEnd++;
+            }
+            chunk.lineCount++;
+
+            if (!isSkipped(bytes, lineStart, lineEnd)) {
+                parseLine(row, lineStart, lineEnd, format, widths, mapper, chunk);
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        return chunk;
+    }
+
+    private static boolean isSkipped(final ByteBuffer bytes, final int start, final int end) {
+        return start == end
+                || bytes.get(start) == COMMENT
+                || (end - start == 1 && bytes.get(start) == CARRIAGE_RETURN);
+    }
+
+    private static <T> void parseLine(final ImportRow row,
+                                      final int start,
+                                      final int end,
+                                      final Format format,
+                                      final int[] widths,
+                                      final RowMapper<T> mapper,
+                                      final Parsed<T> chunk) {
+        final int fields = format == Format.CSV
+                ? row.split(start, end)
+                : row.slice(start, end, widths);
+
+        if (fields != widths.length) {
+            chunk.errors.add(new ImportError(chunk.lineCount,
+                    "Expected " + widths.length + " fields"));
+            return;
+        }
+
+        try {
+            chunk.add(mapper.map(row));
+        } catch (final IllegalArgumentException e) {
+            chunk.errors.add(new ImportError(chunk.lineCount, e.getMessage()));
+        }
+    }
+
+    /*
+     * Concatenates chunk results, turning chunk-relative line numbers into file line numbers.
+     */
+    private static <T> Parsed<T> join(final List<Parsed<T>> chunks) {
+        final Parsed<T> joined = new Parsed<>();
+
+        for (final Parsed<T> chunk : chunks) {
+            for (int i = 0; i < chunk.records.size(); i++) {
+                joined.records.add(chunk.records.get(i));
+                joined.addLine(joined.lineCount + chunk.lines[i]);
+            }
+            for (final ImportError error : chunk.errors) {
+                joined.errors.add(new ImportError(joined.lineCount + error.getLineNumber(),
+                        error.getMessage()));
+            }
+            joined.lineCount += chunk.lineCount;
+        }
+
+        return joined;
+    }
+
+    /*
+     * Builds a record from a parsed row, throwing IllegalArgumentException if the row is invalid.
+     */
+    @FunctionalInterface
+    private interface RowMapper<T> {
+        T map(ImportRow row);
+    }
+
+    /*
+     * The records of a chunk or file, the line each came from, and the rejected rows.
+     */
+    private static final class Parsed<T> {
+        private static final int INITIAL_LINES = 64;
+
+        private final List<T> records = new ArrayList<>();
+        private final List<ImportError> errors = new ArrayList<>();
+        private long[] lines = new long[INITIAL_LINES];
+        private long lineCount;
+
+        private void add(final T record) {
+            records.add(record);
+            addLine(lineCount);
+        }
+
+        private void addLine(final long line) {
+            final int index = records.size() - 1;
+
+            if (index == lines.length) {
+                lines = Arrays.copyOf(lines, lines.length * 2);
+            }
+            lines[index] = line;
+        }
+
+        private ImportResult<T> toResult(final List<T> accepted) {
+            errors.sort(Comparator.comparingLong(ImportError::getLineNumber));
+            return new ImportResult<>(accepted, errors, lineCount);
+        }
+    }
+}
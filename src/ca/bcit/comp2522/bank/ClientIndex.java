@@ -0,0 +1,496 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Secondary indexes over a growing set of clients, for queries such as
+ * "all living clients who joined in 1994" or "clients whose last name starts
+ * with Man".
+ * <p>
+ * Every client gets a row number in the order it was added. Living clients
+ * are marked in one bitmap and each signup year has its own bitmap, so those
+ * filters are ready-made sets of rows. The first four case-folded characters
+ * of each last name are packed into a long key per row, and an array of row
+ * numbers sorted by that key finds every row sharing a prefix with two
+ * binary searches; rows added since the last name query are sorted and
+ * merged in when the next one runs. Only prefixes longer than the key, and
+ * first names, need the name Strings themselves to be compared.
+ * <p>
+ * A Query starts from every row and intersects one bitmap after another in
+ * place. A name filter tests the current matches directly instead when they
+ * are fewer than the rows sharing the prefix.
+ * <p>
+ * This class is not thread-safe; callers that add clients from several
+ * threads, or query while adding, must synchronize externally.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class ClientIndex {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int WORD_SHIFT = 6;
+    private static final long ALL_BITS = -1L;
+    private static final int YEARS = Date.CURRENT_YEAR - Date.MIN_YEAR + 1;
+
+    /* Packing of last name prefixes into sort keys */
+    private static final int KEY_CHARS = 4;
+    private static final int CHAR_BITS = 16;
+    private static final long CHAR_MASK = 0xFFFF;
+
+    private BankClient[] clients;
+    private long[] lastNameKeys;
+    private long[] alive;
+    private final long[][] signedUpByYear = new long[YEARS][];
+    private int size;
+
+    /** Rows sorted by last name key; rows from sortedCount to size are not merged yet. */
+    private int[] byName = new int[0];
+    private int sortedCount;
+
+    /**
+     * Constructs an empty index.
+     */
+    public ClientIndex() {
+        clients = new BankClient[DEFAULT_CAPACITY];
+        lastNameKeys = new long[DEFAULT_CAPACITY];
+        alive = new long[wordsFor(DEFAULT_CAPACITY)];
+    }
+
+    /**
+     * Adds a client to every index.
+     *
+     * @param client the client to add
+     * @return the client's row number
+     * @throws IllegalArgumentException if client is null
+     */
+    public int add(final BankClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException("client cannot be null");
+        }
+        if (size == clients.length) {
+            clients = Arrays.copyOf(clients, size * 2);
+            lastNameKeys = Arrays.copyOf(lastNameKeys, clients.length);
+            alive = Arrays.copyOf(alive, wordsFor(clients.length));
+        }
+
+        final int row = size++;
+
+        clients[row] = client;
+        lastNameKeys[row] = keyOf(client.getName().getLast(), 0);
+        if (client.isAlive()) {
+            alive[row >>> WORD_SHIFT] |= 1L << row;
+        }
+        setBit(client.getSignupDate().getYear() - Date.MIN_YEAR, row);
+
+        return row;
+    }
+
+    /**
+     * Adds every client of a collection.
+     *
+     * @param newClients the clients to add
+     * @throws IllegalArgumentException if newClients or any client is null
+     */
+    public void addAll(final Iterable<BankClient> newClients) {
+        if (newClients == null) {
+            throw new IllegalArgumentException("clients cannot be null");
+        }
+        for (final BankClient client : newClients) {
+            add(client);
+        }
+    }
+
+    /**
+     * Returns the client at a row.
+     *
+     * @param row the row number
+     * @return the client
+     * @throws IndexOutOfBoundsException if the row is out of range
+     */
+    public BankClient get(final int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+        return clients[row];
+    }
+
+    /**
+     * Returns the number of clients indexed.
+     *
+     * @return the client count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Starts a query that matches every client.
+     *
+     * @return the query
+     */
+    public Query query() {
+        return new Query();
+    }
+
+    private static int wordsFor(final int rows) {
+        return (rows + Long.SIZE - 1) >>> WORD_SHIFT;
+    }
+
+    /*
+     * Sets a row in a year's bitmap, creating or growing the bitmap as needed.
+     */
+    private void setBit(final int year, final int row) {
+        final int word = row >>> WORD_SHIFT;
+        long[] bits = signedUpByYear[year];
+
+        if (bits == null || word >= bits.length) {
+            bits = bits == null
+                    ? new long[word + 1]
+                    : Arrays.copyOf(bits, Math.max(word + 1, bits.length * 2));
+            signedUpByYear[year] = bits;
+        }
+        bits[word] |= 1L << row;
+    }
+
+    /*
+     * Sorts the rows added since the last name query and merges them into byName.
+     */
+    private void mergePendingNames() {
+        if (sortedCount == size) {
+            return;
+        }
+
+        int[] pending = new int[size - sortedCount];
+
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = sortedCount + i;
+        }
+        pending = sortByName(pending);
+
+        final int[] merged = new int[size];
+        int a = 0;
+        int b = 0;
+
+        for (int i = 0; i < merged.length; i++) {
+            if (b == pending.length
+                    || (a < byName.length && compareRows(byName[a], pending[b]) <= 0)) {
+                merged[i] = byName[a++];
+            } else {
+                merged[i] = pending[b++];
+            }
+        }
+
+        byName = merged;
+        sortedCount = size;
+    }
+
+    /*
+     * Packs the first KEY_CHARS case-folded characters of a name, padding
+     * missing characters with the given filler.
+     */
+    private static long keyOf(final String name, final long filler) {
+        long key = 0;
+
+        for (int i = 0; i < KEY_CHARS; i++) {
+            final long c = i < name.length()
+                    ? Character.toLowerCase(Character.toUpperCase(name.charAt(i)))
+                    : filler;
+
+            key = (key << CHAR_BITS) | c;
+        }
+
+        return key;
+    }
+
+    /*
+     * Finds the first position in byName whose key is not below a key, as unsigned longs.
+     */
+    private int firstKeyAtLeast(final long key) {
+        int low = 0;
+        int high = byName.length;
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (Long.compareUnsigned(lastNameKeys[byName[middle]], key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /*
+     * Bottom-up merge sort of row numbers by last name key, returning the sorted array.
+     */
+    private int[] sortByName(final int[] rows) {
+        int[] from = rows;
+        int[] to = new int[rows.length];
+
+        for (int width = 1; width < rows.length; width <<= 1) {
+            for (int start = 0; start < rows.length; start += width << 1) {
+                final int middle = Math.min(start + width, rows.length);
+                final int end = Math.min(start + (width << 1), rows.length);
+                int a = start;
+                int b = middle;
+
+                for (int i = start; i < end; i++) {
+                    if (b == end || (a < middle && compareRows(from[a], from[b]) <= 0)) {
+                        to[i] = from[a++];
+                    } else {
+                        to[i] = from[b++];
+                    }
+                }
+            }
+
+            final int[] swap = from;
+            from = to;
+            to = swap;
+        }
+
+        return from;
+    }
+
+    private int compareRows(final int left, final int right) {
+        return Long.compareUnsigned(lastNameKeys[left], lastNameKeys[right]);
+    }
+
+    private static boolean startsWithIgnoreCase(final String text, final String prefix) {
+        return text.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    /**
+     * A set of clients narrowed by successive filters. Each filter intersects
+     * the current matches with one bitmap, in place. A query only covers the
+     * clients that were indexed when it was started.
+     */
+    public final class Query {
+
+        private final long[] matches;
+        private final int rowLimit;
+
+        private Query() {
+            rowLimit = size;
+            matches = new long[wordsFor(size)];
+            Arrays.fill(matches, ALL_BITS);
+
+            final int spare = matches.length * Long.SIZE - rowLimit;
+
+            if (spare > 0) {
+                matches[matches.length - 1] = ALL_BITS >>> spare;
+            }
+        }
+
+        /**
+         * Keeps only clients who are alive.
+         *
+         * @return this query
+         */
+        public Query alive() {
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] &= alive[i];
+            }
+            return this;
+        }
+
+        /**
+         * Keeps only clients who have died.
+         *
+         * @return this query
+         */
+        public Query deceased() {
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] &= ~alive[i];
+            }
+            return this;
+        }
+
+        /**
+         * Keeps only clients who signed up in a year.
+         *
+         * @param year the signup year
+         * @return this query
+         */
+        public Query signedUpIn(final int year) {
+            return signedUpBetween(year, year);
+        }
+
+        /**
+         * Keeps only clients who signed up in a range of years.
+         *
+         * @param fromYear the first year, inclusive
+         * @param toYear the last year, inclusive
+         * @return this query
+         */
+        public Query signedUpBetween(final int fromYear, final int toYear) {
+            final long[] years = new long[matches.length];
+            final int from = Math.max(fromYear, Date.MIN_YEAR) - Date.MIN_YEAR;
+            final int to = Math.min(toYear, Date.CURRENT_YEAR) - Date.MIN_YEAR;
+
+            for (int year = from; year <= to; year++) {
+                final long[] bits = signedUpByYear[year];
+
+                if (bits != null) {
+                    final int words = Math.min(bits.length, years.length);
+
+                    for (int i = 0; i < words; i++) {
+                        years[i] |= bits[i];
+                    }
+                }
+            }
+
+            return intersect(years);
+        }
+
+        /**
+         * Keeps only clients whose last name starts with a prefix, ignoring case.
+         *
+         * @param prefix the last name prefix
+         * @return this query
+         * @throws IllegalArgumentException if prefix is null
+         */
+        public Query lastNameStartsWith(final String prefix) {
+            if (prefix == null) {
+                throw new IllegalArgumentException("prefix cannot be null");
+            }
+            return filterByName(prefix, prefix.length() <= KEY_CHARS
+                    ? null
+                    : name -> startsWithIgnoreCase(name.getLast(), prefix));
+        }
+
+        /**
+         * Keeps only clients with a last name and a first name starting with a
+         * prefix, ignoring case.
+         *
+         * @param last the last name
+         * @param firstPrefix the first name prefix
+         * @return this query
+         * @throws IllegalArgumentException if either argument is null
+         */
+        public Query named(final String last, final String firstPrefix) {
+            if (last == null || firstPrefix == null) {
+                throw new IllegalArgumentException("names cannot be null");
+            }
+            return filterByName(last, name -> name.getLast().equalsIgnoreCase(last)
+                    && startsWithIgnoreCase(name.getFirst(), firstPrefix));
+        }
+
+        /*
+         * Keeps the rows whose last name key falls in the range of a prefix and,
+         * if a test is given, whose name passes it. The candidates come from
+         * byName, unless the current matches are fewer, in which case they are
+         * checked instead.
+         */
+        private Query filterByName(final String lastPrefix, final Predicate<Name> test) {
+            mergePendingNames();
+
+            final long lowKey = keyOf(lastPrefix, 0);
+            final long highKey = keyOf(lastPrefix, CHAR_MASK);
+            final int from = firstKeyAtLeast(lowKey);
+            final int to = highKey == ALL_BITS ? byName.length : firstKeyAtLeast(highKey + 1);
+
+            if (count() <= to - from) {
+                for (int i = 0; i < matches.length; i++) {
+                    long word = matches[i];
+
+                    while (word != 0) {
+                        final long bit = Long.lowestOneBit(word);
+                        final int row = (i << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+
+                        if (!accepts(row, lowKey, highKey, test)) {
+                            matches[i] &= ~bit;
+                        }
+                        word &= ~bit;
+                    }
+                }
+                return this;
+            }
+
+            final long[] named = new long[matches.length];
+
+            for (int i = from; i < to; i++) {
+                final int row = byName[i];
+
+                if (row < rowLimit && (test == null || test.test(clients[row].getName()))) {
+                    named[row >>> WORD_SHIFT] |= 1L << row;
+                }
+            }
+
+            return intersect(named);
+        }
+
+        private boolean accepts(final int row,
+                                final long lowKey,
+                                final long highKey,
+                                final Predicate<Name> test) {
+            final long key = lastNameKeys[row];
+
+            return Long.compareUnsigned(key, lowKey) >= 0
+                    && Long.compareUnsigned(key, highKey) <= 0
+                    && (test == null || test.test(clients[row].getName()));
+        }
+
+        /**
+         * Returns the number of matching clients.
+         *
+         * @return the match count
+         */
+        public int count() {
+            int count = 0;
+
+            for (final long word : matches) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * Returns the row numbers of the matching clients.
+         *
+         * @return the rows in ascending order
+         */
+        public int[] rows() {
+            final int[] rows = new int[count()];
+            int next = 0;
+
+            for (int i = 0; i < matches.length; i++) {
+                long word = matches[i];
+
+                while (word != 0) {
+                    rows[next++] = (i << WORD_SHIFT) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return rows;
+        }
+
+        /**
+         * Returns the matching clients.
+         *
+         * @return the clients in row order
+         */
+        public List<BankClient> clients() {
+            final int[] rows = rows();
+            final List<BankClient> result = new ArrayList<>(rows.length);
+
+            for (final int row : rows) {
+                result.add(clients[row]);
+            }
+            return result;
+        }
+
+        private Query intersect(final long[] filter) {
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] &= filter[i];
+            }
+            return this;
+        }
+    }
+}
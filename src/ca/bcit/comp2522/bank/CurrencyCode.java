@@ -0,0 +1,61 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * The currencies an account can hold, by ISO 4217 code.
+ * Amounts in every currency are whole numbers of its minor unit: cents for
+ * most currencies, whole yen for JPY.
+ * <p>
+ * Journals and snapshots store a currency by its ordinal, so new currencies
+ * must be added at the end.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public enum CurrencyCode {
+
+    /** United States dollar, the bank's base currency. */
+    USD(2),
+
+    /** Canadian dollar. */
+    CAD(2),
+
+    /** Euro. */
+    EUR(2),
+
+    /** Pound sterling. */
+    GBP(2),
+
+    /** Swiss franc. */
+    CHF(2),
+
+    /** Australian dollar. */
+    AUD(2),
+
+    /** Chinese yuan. */
+    CNY(2),
+
+    /** Indian rupee. */
+    INR(2),
+
+    /** Mexican peso. */
+    MXN(2),
+
+    /** Japanese yen, which has no minor unit. */
+    JPY(0);
+
+    private final int minorDigits;
+
+    CurrencyCode(final int minorDigits) {
+        this.minorDigits = minorDigits;
+    }
+
+    /**
+     * Returns the number of decimal places of the currency's minor unit.
+     *
+     * @return 2 for a currency with cents, 0 for one without
+     */
+    public int getMinorDigits() {
+        return minorDigits;
+    }
+}
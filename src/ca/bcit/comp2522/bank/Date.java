@@ -2,60 +2,38 @@ package ca.bcit.comp2522.bank;
 
 /**
  * Represents a Date class that is used for BankAccount and BankClient.
- * A Date class stores the year, month and day of the date.
+ * A Date is stored as a single int counting days since 1970-01-01 (its epoch day),
+ * which makes the day of the week a single modulo. Dates between MIN_YEAR and
+ * CURRENT_YEAR obtained through {@link #of(int, int, int)} are shared instances,
+ * and each instance formats its String once.
  *
  * @author Giant Mak
  * @author Brian Lau
  *
  * @version 1.0
  */
-public class Date {
-
-    private final int year;
-    private final int month;
-    private final int day;
+public class Date implements Comparable<Date> {
 
     /* Year limits */
-    private static final int MIN_YEAR = 1800;
-    private static final int CURRENT_YEAR = 2026;
+    static final int MIN_YEAR = 1800;
+    static final int CURRENT_YEAR = 2026;
 
     /* Time constants */
-    private static final int MONTHS_IN_YEAR = 12;
     private static final int DAYS_IN_WEEK = 7;
-    private static final int FOUR_STEPS_TWO = 4;
-    private static final int ADDED_SIX = 6;
-    private static final int ADDED_TWO = 2;
     private static final int CENTURY_MOD = 100;
     private static final int YEARS_BETWEEN_LEAP_YEARS = 400;
+    private static final int YEARS_BETWEEN_LEAP_DAYS = 4;
 
     /* Month numbers */
     private static final int JANUARY = 1;
     private static final int FEBRUARY = 2;
     private static final int MARCH = 3;
     private static final int APRIL = 4;
-    private static final int MAY = 5;
     private static final int JUNE = 6;
-    private static final int JULY = 7;
-    private static final int AUGUST = 8;
     private static final int SEPTEMBER = 9;
-    private static final int OCTOBER = 10;
     private static final int NOVEMBER = 11;
     private static final int DECEMBER = 12;
 
-    /* Month codes */
-    private static final int JAN_CODE = 1;
-    private static final int FEB_CODE = 4;
-    private static final int MAR_CODE = 4;
-    private static final int APR_CODE = 0;
-    private static final int MAY_CODE = 2;
-    private static final int JUN_CODE = 5;
-    private static final int JUL_CODE = 0;
-    private static final int AUG_CODE = 3;
-    private static final int SEP_CODE = 6;
-    private static final int OCT_CODE = 1;
-    private static final int NOV_CODE = 4;
-    private static final int DEC_CODE = 6;
-
     /* Day limits */
     private static final int MIN_DAY = 1;
     private static final int FEB_MAX_DAY = 29;
@@ -63,14 +41,46 @@ public class Date {
     private static final int AJSN_MAX_DAY = 30;
     private static final int REST_MAX_DAY = 31;
 
-    /* Century thresholds */
-    private static final int YEAR_1800 = 1800;
-    private static final int YEAR_1900 = 1900;
-    private static final int YEAR_2000 = 2000;
+    /* Epoch-day conversion constants (civil calendar with years starting in March) */
+    private static final int DAYS_PER_ERA = 146097;
+    private static final int DAYS_FROM_ERA_START_TO_EPOCH = 719468;
+    private static final int DAYS_IN_YEAR = 365;
+    private static final int DAYS_IN_FOUR_YEARS = 1460;
+    private static final int DAYS_IN_CENTURY = 36524;
+    private static final int DAYS_IN_ERA_MINUS_ONE = 146096;
+    private static final int MONTHS_AFTER_MARCH = 9;
+    private static final int MONTHS_BEFORE_MARCH = 3;
+    private static final int DAYS_IN_FIVE_MONTHS = 153;
+    private static final int FIVE_MONTHS = 5;
+    private static final int TEN_MONTHS = 10;
+
+    /** Day of week of epoch day 0 (1970-01-01, a Thursday) with sunday as 0. */
+    private static final int EPOCH_DAY_OF_WEEK = 4;
 
     /* constant that changes single digits to double digits */
     private static final int CHNG_TO_DD = 10;
 
+    private static final String[] DAY_NAMES = {
+        "sunday", "monday", "tuesday", "wednesday", "thursday", "friday", "saturday"
+    };
+
+    private static final String[] MONTH_NAMES = {
+        "January", "February", "March", "April", "May", "June",
+        "July", "August", "September", "October", "November", "December"
+    };
+
+    /* Range of epoch days covered by the shared instances */
+    private static final int MIN_EPOCH_DAY = toEpochDay(MIN_YEAR, JANUARY, MIN_DAY);
+    private static final int MAX_EPOCH_DAY = toEpochDay(CURRENT_YEAR, DECEMBER, REST_MAX_DAY);
+
+    /** Shared instances indexed by epoch day - MIN_EPOCH_DAY, filled on first use. */
+    private static final Date[] CACHE = new Date[MAX_EPOCH_DAY - MIN_EPOCH_DAY + 1];
+
+    private final int epochDay;
+
+    /** Formatted form of the date, built on the first call to toString. */
+    private String formatted;
+
     /**
      * Constructs a Date with validation.
      *
@@ -86,9 +96,64 @@ public class Date {
         validateMonth(month);
         validateDay(year, month, day);
 
-        this.year = year;
-        this.month = month;
-        this.day = day;
+        this.epochDay = toEpochDay(year, month, day);
+    }
+
+    /*
+     * Constructs a Date from an epoch day that is already known to be valid.
+     */
+    private Date(final int epochDay)
+    {
+        this.epochDay = epochDay;
+    }
+
+    /**
+     * Returns the shared Date for a year, month and day, validating them first.
+     * Repeated calls with the same arguments return the same instance.
+     *
+     * @param year of the date
+     * @param month of the date
+     * @param day of the date
+     * @return the date
+     * @throws IllegalArgumentException if the date is invalid
+     */
+    public static Date of(final int year,
+                          final int month,
+                          final int day)
+    {
+        validateYear(year);
+        validateMonth(month);
+        validateDay(year, month, day);
+
+        return ofEpochDay(toEpochDay(year, month, day));
+    }
+
+    /**
+     * Returns the shared Date for an epoch day.
+     *
+     * @param epochDay days since 1970-01-01
+     * @return the date
+     * @throws IllegalArgumentException if the epoch day is outside the supported years
+     */
+    static Date ofEpochDay(final int epochDay)
+    {
+        if (epochDay < MIN_EPOCH_DAY || epochDay > MAX_EPOCH_DAY)
+        {
+            throw new IllegalArgumentException("Invalid epoch day: " + epochDay);
+        }
+
+        final int index = epochDay - MIN_EPOCH_DAY;
+        Date date = CACHE[index];
+
+        // Dates are immutable apart from the cached String, so a racing
+        // thread at worst creates a second, equal instance.
+        if (date == null)
+        {
+            date = new Date(epochDay);
+            CACHE[index] = date;
+        }
+
+        return date;
     }
 
     /* ---------------- Validation ---------------- */
@@ -112,7 +177,7 @@ public class Date {
     }
 
     private static boolean isLeapYear(final int year) {
-        return (year % YEARS_BETWEEN_LEAP_YEARS == 0 && year % CENTURY_MOD != 0)
+        return (year % YEARS_BETWEEN_LEAP_DAYS == 0 && year % CENTURY_MOD != 0)
                 || (year % YEARS_BETWEEN_LEAP_YEARS == 0);
     }
 
@@ -134,13 +199,123 @@ public class Date {
         }
     }
 
+    /* ---------------- Epoch Day ---------------- */
+
+    /*
+     * Counts the days from 1970-01-01 to a valid date, treating March as the
+     * first month of the year so the leap day falls at the end.
+     */
+    private static int toEpochDay(final int year, final int month, final int day) {
+        final int shiftedYear = month <= FEBRUARY ? year - 1 : year;
+        final int era = shiftedYear / YEARS_BETWEEN_LEAP_YEARS;
+        final int yearOfEra = shiftedYear - era * YEARS_BETWEEN_LEAP_YEARS;
+        final int shiftedMonth = month > FEBRUARY ? month - MONTHS_BEFORE_MARCH : month + MONTHS_AFTER_MARCH;
+        final int dayOfYear = (DAYS_IN_FIVE_MONTHS * shiftedMonth + 2) / FIVE_MONTHS + day - 1;
+        final int dayOfEra = yearOfEra * DAYS_IN_YEAR
+                + yearOfEra / YEARS_BETWEEN_LEAP_DAYS
+                - yearOfEra / CENTURY_MOD
+                + dayOfYear;
+
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_FROM_ERA_START_TO_EPOCH;
+    }
+
+    /*
+     * Returns the position of this date within its 400-year era,
+     * counted from March 1 of the era's first year.
+     */
+    private int dayOfEra() {
+        return dayOfEra(epochDay);
+    }
+
+    private static int dayOfEra(final int epochDay) {
+        final int shifted = epochDay + DAYS_FROM_ERA_START_TO_EPOCH;
+
+        return shifted - (shifted / DAYS_PER_ERA) * DAYS_PER_ERA;
+    }
+
+    private static int yearOfEra(final int dayOfEra) {
+        return (dayOfEra
+                - dayOfEra / DAYS_IN_FOUR_YEARS
+                + dayOfEra / DAYS_IN_CENTURY
+                - dayOfEra / DAYS_IN_ERA_MINUS_ONE) / DAYS_IN_YEAR;
+    }
+
+    private static int dayOfShiftedYear(final int dayOfEra, final int yearOfEra) {
+        return dayOfEra - (DAYS_IN_YEAR * yearOfEra
+                + yearOfEra / YEARS_BETWEEN_LEAP_DAYS
+                - yearOfEra / CENTURY_MOD);
+    }
+
+    private static int shiftedMonth(final int dayOfShiftedYear) {
+        return (FIVE_MONTHS * dayOfShiftedYear + 2) / DAYS_IN_FIVE_MONTHS;
+    }
+
     /* ---------------- Getters ---------------- */
 
-    public int getDay() { return day; }
+    public int getDay() {
+        final int doe = dayOfEra();
+        final int doy = dayOfShiftedYear(doe, yearOfEra(doe));
+
+        return doy - (DAYS_IN_FIVE_MONTHS * shiftedMonth(doy) + 2) / FIVE_MONTHS + 1;
+    }
+
+    public int getMonth() {
+        final int doe = dayOfEra();
+        final int mp = shiftedMonth(dayOfShiftedYear(doe, yearOfEra(doe)));
+
+        return mp < TEN_MONTHS ? mp + MONTHS_BEFORE_MARCH : mp - MONTHS_AFTER_MARCH;
+    }
+
+    public int getYear() {
+        return yearOf(epochDay);
+    }
+
+    /**
+     * Returns the number of days since 1970-01-01.
+     *
+     * @return the epoch day of this date
+     */
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+    /* ---------------- Epoch Day Accessors ---------------- */
 
-    public int getMonth() { return month; }
+    /**
+     * Validates a date and returns its epoch day without creating a Date.
+     *
+     * @param year of the date
+     * @param month of the date
+     * @param day of the date
+     * @return the number of days since 1970-01-01
+     * @throws IllegalArgumentException if the date is invalid
+     */
+    public static int epochDayOf(final int year,
+                                 final int month,
+                                 final int day)
+    {
+        validateYear(year);
+        validateMonth(month);
+        validateDay(year, month, day);
 
-    public int getYear() { return year; }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Returns the year of an epoch day without creating a Date.
+     *
+     * @param epochDay days since 1970-01-01 (must be on or after 1800-01-01)
+     * @return the year
+     */
+    public static int yearOf(final int epochDay) {
+        final int era = (epochDay + DAYS_FROM_ERA_START_TO_EPOCH) / DAYS_PER_ERA;
+        final int doe = dayOfEra(epochDay);
+        final int yoe = yearOfEra(doe);
+        final int year = yoe + era * YEARS_BETWEEN_LEAP_YEARS;
+
+        // January and February belong to the previous March-based year
+        return shiftedMonth(dayOfShiftedYear(doe, yoe)) >= TEN_MONTHS ? year + 1 : year;
+    }
 
     /* ---------------- Formatting ---------------- */
 
@@ -149,82 +324,136 @@ public class Date {
     }
 
     public String getYYYYMMDD() {
-        return year + "-" + placeHolder(month) + "-" + placeHolder(day);
+        return getYear() + "-" + placeHolder(getMonth()) + "-" + placeHolder(getDay());
     }
 
     /* ---------------- Day of Week ---------------- */
 
-    private int getMonthCode() {
-        return switch (month) {
-            case JANUARY -> JAN_CODE;
-            case FEBRUARY -> FEB_CODE;
-            case MARCH -> MAR_CODE;
-            case APRIL -> APR_CODE;
-            case MAY -> MAY_CODE;
-            case JUNE -> JUN_CODE;
-            case JULY -> JUL_CODE;
-            case AUGUST -> AUG_CODE;
-            case SEPTEMBER -> SEP_CODE;
-            case OCTOBER -> OCT_CODE;
-            case NOVEMBER -> NOV_CODE;
-            case DECEMBER -> DEC_CODE;
-            default -> throw new IllegalArgumentException("Invalid month: " + month);
-        };
+    public String getDayOfWeek() {
+        return DAY_NAMES[Math.floorMod(epochDay + EPOCH_DAY_OF_WEEK, DAYS_IN_WEEK)];
     }
 
-    public String getDayOfWeek() {
-        int total = 0;
+    public String getMonthName() {
+        return MONTH_NAMES[getMonth() - 1];
+    }
 
-        if (year >= YEAR_2000) {
-            total += ADDED_SIX;
-        }
-        if (year >= YEAR_1800 && year < YEAR_1900) {
-            total += ADDED_TWO;
-        }
-        if (isLeapYear(year) && (month == JANUARY || month == FEBRUARY)) {
-            total += ADDED_SIX;
-        }
+    /* ---------------- Arithmetic ---------------- */
 
-        int yearPart = year % CENTURY_MOD;
-        int twelves = yearPart / MONTHS_IN_YEAR;
-        int remainder = yearPart - (twelves * MONTHS_IN_YEAR);
-        int fours = remainder / FOUR_STEPS_TWO;
+    /**
+     * Returns the date a number of days after this one.
+     * The result is a shared instance, so no Date is allocated once it has been used.
+     *
+     * @param days the number of days to add (may be negative)
+     * @return the resulting date
+     * @throws IllegalArgumentException if the result is outside the supported years
+     */
+    public Date plusDays(final int days) {
+        return ofEpochDay(epochDay + days);
+    }
 
-        total += twelves + remainder + fours + day + getMonthCode();
-        total %= DAYS_IN_WEEK;
+    /**
+     * Returns the number of days from this date to another.
+     *
+     * @param other the other date
+     * @return the days from this date to other; negative if other is earlier
+     */
+    public int daysBetween(final Date other) {
+        return other.epochDay - epochDay;
+    }
 
-        return switch (total) {
-            case 0 -> "saturday";
-            case 1 -> "sunday";
-            case 2 -> "monday";
-            case 3 -> "tuesday";
-            case 4 -> "wednesday";
-            case 5 -> "thursday";
-            case 6 -> "friday";
-            default -> throw new IllegalArgumentException("Invalid mapping number: " + total);
-        };
+    /**
+     * Determines whether this date falls within a range, inclusive of both ends.
+     *
+     * @param from the first date of the range
+     * @param to the last date of the range
+     * @return true if from &lt;= this &lt;= to
+     */
+    public boolean isBetween(final Date from, final Date to) {
+        return isBetween(epochDay, from.epochDay, to.epochDay);
     }
 
-    public String getMonthName() {
-        return switch (month) {
-            case JANUARY -> "January";
-            case FEBRUARY -> "February";
-            case MARCH -> "March";
-            case APRIL -> "April";
-            case MAY -> "May";
-            case JUNE -> "June";
-            case JULY -> "July";
-            case AUGUST -> "August";
-            case SEPTEMBER -> "September";
-            case OCTOBER -> "October";
-            case NOVEMBER -> "November";
-            case DECEMBER -> "December";
-            default -> throw new IllegalArgumentException("Invalid month: " + month);
-        };
+    /**
+     * Determines whether an epoch day falls within a range, inclusive of both ends.
+     * Suitable for filtering arrays of epoch days in tight loops.
+     *
+     * @param epochDay the day to test
+     * @param fromEpochDay the first day of the range
+     * @param toEpochDay the last day of the range
+     * @return true if fromEpochDay &lt;= epochDay &lt;= toEpochDay
+     */
+    public static boolean isBetween(final int epochDay,
+                                    final int fromEpochDay,
+                                    final int toEpochDay) {
+        return epochDay >= fromEpochDay && epochDay <= toEpochDay;
+    }
+
+    /**
+     * Determines whether this date is before another.
+     *
+     * @param other the other date
+     * @return true if this date is earlier
+     */
+    public boolean isBefore(final Date other) {
+        return epochDay < other.epochDay;
+    }
+
+    /**
+     * Determines whether this date is after another.
+     *
+     * @param other the other date
+     * @return true if this date is later
+     */
+    public boolean isAfter(final Date other) {
+        return epochDay > other.epochDay;
+    }
+
+    @Override
+    public int compareTo(final Date other) {
+        return Integer.compare(epochDay, other.epochDay);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof Date && ((Date) other).epochDay == epochDay;
+    }
+
+    @Override
+    public int hashCode() {
+        return epochDay;
+    }
+
+    /**
+     * Appends the same text as toString to a builder. The text is built once
+     * per instance, so repeated calls do not allocate.
+     *
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendTo(final StringBuilder out) {
+        return out.append(toString());
+    }
+
+    /**
+     * Appends a possibly missing date to a builder, writing "null" when it is
+     * missing just as String concatenation would.
+     *
+     * @param date the date to append (may be null)
+     * @param out the builder to append to
+     * @return the builder
+     */
+    static StringBuilder appendTo(final Date date, final StringBuilder out) {
+        return date == null ? out.append((String) null) : date.appendTo(out);
     }
 
     @Override
     public String toString() {
-        return getDayOfWeek() + ", " + getMonthName() + " " + day + ", " + year;
+        String text = formatted;
+
+        if (text == null) {
+            text = getDayOfWeek() + ", " + getMonthName() + " " + getDay() + ", " + getYear();
+            formatted = text;
+        }
+
+        return text;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,276 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Exchange rates between every pair of currencies.
+ * <p>
+ * Rates are quoted as units of each currency per US dollar. From the quotes
+ * the table precomputes the rate for every ordered pair, in minor units of
+ * the target per minor unit of the source scaled by RATE_SCALE, into one
+ * flat array. Converting an amount reads that array through a volatile field
+ * and multiplies by one entry, with no locks or allocation. Changing the
+ * rates builds a whole new array and swaps the field, so a reader sees
+ * either the old rates or the new ones and traffic never waits for a reload.
+ * <p>
+ * A rate file has one quote per line, a currency code and a decimal number
+ * of units per US dollar, for example "CAD 1.3650". Blank lines and lines
+ * starting with '#' are skipped.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class FxRateTable {
+
+    /** Fixed-point scale of a rate: a rate of RATE_SCALE converts one to one. */
+    public static final long RATE_SCALE = 1_000_000L;
+
+    /** Rate read for a pair of currencies that has no quote. */
+    static final long NO_RATE = 0L;
+
+    /** Result of applyRate when the converted amount does not fit in a long. */
+    static final long OVERFLOWED = -1L;
+
+    /* Largest rate for which remainder * rate + RATE_SCALE / 2 cannot overflow */
+    private static final long MAX_RATE = Long.MAX_VALUE / (2 * RATE_SCALE);
+
+    private static final CurrencyCode[] CURRENCIES = CurrencyCode.values();
+    private static final int CURRENCY_COUNT = CURRENCIES.length;
+    private static final BigDecimal SCALE = BigDecimal.valueOf(RATE_SCALE);
+    private static final BigDecimal LARGEST_RATE = BigDecimal.valueOf(MAX_RATE);
+    private static final String COMMENT = "#";
+    private static final String SEPARATOR = "\\s+";
+    private static final int QUOTE_FIELDS = 2;
+
+    /** Units of each currency per US dollar, or null if unquoted. Guarded by this. */
+    private BigDecimal[] quotes;
+
+    /** Rate for each ordered pair, at index from * CURRENCY_COUNT + to. */
+    private volatile long[] rates;
+
+    /**
+     * Constructs a table that only knows the base currency.
+     */
+    public FxRateTable() {
+        quotes = new BigDecimal[CURRENCY_COUNT];
+        quotes[CurrencyCode.USD.ordinal()] = BigDecimal.ONE;
+        rates = build(quotes);
+    }
+
+    /**
+     * Constructs a table from a rate file.
+     *
+     * @param file the rate file
+     * @return the table
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is malformed
+     */
+    public static FxRateTable load(final Path file) throws IOException {
+        final FxRateTable table = new FxRateTable();
+
+        table.reload(file);
+        return table;
+    }
+
+    /**
+     * Replaces every quote with those in a rate file. The file is read and
+     * checked completely before any rate changes; if it is malformed the
+     * table keeps its current rates. Currencies missing from the file lose
+     * their rates.
+     *
+     * @param file the rate file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if file is null or a line is malformed
+     */
+    public void reload(final Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        final BigDecimal[] parsed = new BigDecimal[CURRENCY_COUNT];
+
+        parsed[CurrencyCode.USD.ordinal()] = BigDecimal.ONE;
+        for (int i = 0; i < lines.size(); i++) {
+            final String line = lines.get(i).strip();
+
+            if (line.isEmpty() || line.startsWith(COMMENT)) {
+                continue;
+            }
+
+            final String[] fields = line.split(SEPARATOR);
+
+            try {
+                if (fields.length != QUOTE_FIELDS) {
+                    throw new IllegalArgumentException("expected a currency and a rate");
+                }
+
+                final CurrencyCode currency = currencyOf(fields[0]);
+
+                parsed[currency.ordinal()] = checkQuote(currency, new BigDecimal(fields[1]));
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+
+        final long[] built = build(parsed);
+
+        synchronized (this) {
+            quotes = parsed;
+            rates = built;
+        }
+    }
+
+    /**
+     * Sets the quote for one currency, leaving the others as they are.
+     *
+     * @param currency the currency
+     * @param unitsPerUsd how many units of the currency one US dollar buys
+     * @throws IllegalArgumentException if an argument is null, the quote is
+     *         not positive, or a USD quote is not 1
+     */
+    public synchronized void setQuote(final CurrencyCode currency, final BigDecimal unitsPerUsd) {
+        if (currency == null || unitsPerUsd == null) {
+            throw new IllegalArgumentException("currency and quote cannot be null");
+        }
+
+        final BigDecimal[] updated = quotes.clone();
+
+        updated[currency.ordinal()] = checkQuote(currency, unitsPerUsd);
+        rates = build(updated);
+        quotes = updated;
+    }
+
+    private static CurrencyCode currencyOf(final String code) {
+        for (final CurrencyCode currency : CURRENCIES) {
+            if (currency.name().equals(code)) {
+                return currency;
+            }
+        }
+        throw new IllegalArgumentException("Unknown currency: " + code);
+    }
+
+    private static BigDecimal checkQuote(final CurrencyCode currency, final BigDecimal unitsPerUsd) {
+        if (unitsPerUsd.signum() <= 0) {
+            throw new IllegalArgumentException("Invalid rate for " + currency + ": " + unitsPerUsd);
+        }
+        if (currency == CurrencyCode.USD && unitsPerUsd.compareTo(BigDecimal.ONE) != 0) {
+            throw new IllegalArgumentException("USD is the base currency and must be quoted at 1");
+        }
+        return unitsPerUsd;
+    }
+
+    /*
+     * Computes the scaled minor-unit rate of every pair whose currencies are both quoted.
+     */
+    private static long[] build(final BigDecimal[] quotes) {
+        final long[] built = new long[CURRENCY_COUNT * CURRENCY_COUNT];
+
+        for (final CurrencyCode from : CURRENCIES) {
+            for (final CurrencyCode to : CURRENCIES) {
+                final BigDecimal fromQuote = quotes[from.ordinal()];
+                final BigDecimal toQuote = quotes[to.ordinal()];
+
+                if (fromQuote == null || toQuote == null) {
+                    continue;
+                }
+
+                final BigDecimal rate = toQuote.multiply(SCALE)
+                        .scaleByPowerOfTen(to.getMinorDigits() - from.getMinorDigits())
+                        .divide(fromQuote, 0, RoundingMode.HALF_EVEN);
+
+                if (rate.signum() <= 0 || rate.compareTo(LARGEST_RATE) > 0) {
+                    throw new IllegalArgumentException("Rate out of range for " + from + "/" + to);
+                }
+                built[index(from, to)] = rate.longValue();
+            }
+        }
+
+        return built;
+    }
+
+    private static int index(final CurrencyCode from, final CurrencyCode to) {
+        return from.ordinal() * CURRENCY_COUNT + to.ordinal();
+    }
+
+    /**
+     * Returns the current rate between two currencies.
+     *
+     * @param from the currency converted from
+     * @param to the currency converted to
+     * @return minor units of to per minor unit of from, times RATE_SCALE,
+     *         or NO_RATE if either currency is unquoted
+     */
+    long getRate(final CurrencyCode from, final CurrencyCode to) {
+        return rates[index(from, to)];
+    }
+
+    /**
+     * Converts an amount at a scaled rate, rounding half up to the minor unit.
+     * The amount is split around RATE_SCALE so no intermediate product can
+     * overflow.
+     *
+     * @param amount a non-negative amount in minor units
+     * @param rate a rate from getRate other than NO_RATE
+     * @return the converted amount, or OVERFLOWED if it does not fit in a long
+     */
+    static long applyRate(final long amount, final long rate) {
+        final long whole = amount / RATE_SCALE;
+
+        if (whole > Long.MAX_VALUE / rate) {
+            return OVERFLOWED;
+        }
+
+        final long high = whole * rate;
+        final long low = (amount % RATE_SCALE * rate + RATE_SCALE / 2) / RATE_SCALE;
+
+        return high > Long.MAX_VALUE - low ? OVERFLOWED : high + low;
+    }
+
+    /**
+     * Converts an amount between currencies at the current rate.
+     *
+     * @param amount a non-negative amount in minor units of from
+     * @param from the currency converted from
+     * @param to the currency converted to
+     * @return the amount in minor units of to, rounded half up
+     * @throws IllegalArgumentException if a currency is null, the amount is
+     *         negative, or either currency has no rate
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public long convert(final long amount, final CurrencyCode from, final CurrencyCode to) {
+        if (from == null || to == null || amount < 0) {
+            throw new IllegalArgumentException("Invalid conversion");
+        }
+
+        final long rate = getRate(from, to);
+
+        if (rate == NO_RATE) {
+            throw new IllegalArgumentException("No exchange rate for " + from + " to " + to);
+        }
+
+        final long converted = applyRate(amount, rate);
+
+        if (converted == OVERFLOWED) {
+            throw new ArithmeticException("conversion overflow");
+        }
+        return converted;
+    }
+
+    /**
+     * Returns whether a currency currently has a quote.
+     *
+     * @param currency the currency
+     * @return true if it can be converted
+     */
+    public boolean isQuoted(final CurrencyCode currency) {
+        return rates[index(currency, currency)] != NO_RATE;
+    }
+}
@@ -0,0 +1,72 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Encodes the short account numbers and client IDs used by the bank
+ * into a single long so they can be stored without boxing Strings.
+ * Each character takes one byte, so an ID of up to 7 ASCII characters
+ * fits in 56 bits and two different IDs never share a key.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+final class IdCodec {
+
+    /** Key returned when an ID cannot be encoded. Never a valid key. */
+    static final long NO_KEY = 0L;
+
+    /** Maximum number of characters that fit in one key. */
+    static final int MAX_LENGTH = 7;
+
+    private static final int BITS_PER_CHAR = 8;
+    private static final int CHAR_MASK = 0xFF;
+    private static final char MAX_ASCII = 0x7F;
+
+    private IdCodec() {
+    }
+
+    /**
+     * Encodes an ID into a long key.
+     *
+     * @param id the ID to encode
+     * @return the key, or NO_KEY if the ID is null, empty, too long
+     *         or contains a non-ASCII or NUL character
+     */
+    static long encode(final String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_LENGTH) {
+            return NO_KEY;
+        }
+
+        long key = 0L;
+
+        for (int i = 0; i < id.length(); i++) {
+            final char c = id.charAt(i);
+
+            if (c == 0 || c > MAX_ASCII) {
+                return NO_KEY;
+            }
+            key = (key << BITS_PER_CHAR) | c;
+        }
+
+        return key;
+    }
+
+    /**
+     * Decodes a key produced by encode back into its ID.
+     *
+     * @param key the key to decode
+     * @return the original ID
+     */
+    static String decode(final long key) {
+        final char[] chars = new char[MAX_LENGTH];
+        int start = MAX_LENGTH;
+        long remaining = key;
+
+        while (remaining != 0) {
+            chars[--start] = (char) (remaining & CHAR_MASK);
+            remaining >>>= BITS_PER_CHAR;
+        }
+
+        return new String(chars, start, MAX_LENGTH - start);
+    }
+}
@@ -0,0 +1,53 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * A row of an import file that was rejected, and why.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class ImportError {
+
+    private final long lineNumber;
+    private final String message;
+
+    /**
+     * Constructs an error for a line of an import file.
+     *
+     * @param lineNumber the line number, counting from 1
+     * @param message the reason the row was rejected
+     */
+    ImportError(final long lineNumber, final String message) {
+        this.lineNumber = lineNumber;
+        this.message = message;
+    }
+
+    /**
+     * Returns the line number of the rejected row.
+     *
+     * @return the line number, counting from 1
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the reason the row was rejected.
+     *
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the error as "line N: message".
+     *
+     * @return the error text
+     */
+    @Override
+    public String toString() {
+        return "line " + lineNumber + ": " + message;
+    }
+}
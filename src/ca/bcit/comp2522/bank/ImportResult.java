@@ -0,0 +1,68 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.List;
+
+/**
+ * The outcome of importing a file: the records built from its valid rows,
+ * in file order, and an error for every row that was rejected.
+ *
+ * @param <T> the type of record imported
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class ImportResult<T> {
+
+    private final List<T> records;
+    private final List<ImportError> errors;
+    private final long lineCount;
+
+    /**
+     * Constructs a result.
+     *
+     * @param records the imported records
+     * @param errors the rejected rows, ordered by line number
+     * @param lineCount the number of lines read
+     */
+    ImportResult(final List<T> records, final List<ImportError> errors, final long lineCount) {
+        this.records = List.copyOf(records);
+        this.errors = List.copyOf(errors);
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * Returns the records built from the valid rows.
+     *
+     * @return an unmodifiable list in file order
+     */
+    public List<T> getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns the rejected rows.
+     *
+     * @return an unmodifiable list ordered by line number
+     */
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Determines whether any row was rejected.
+     *
+     * @return true if there is at least one error
+     */
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /**
+     * Returns the number of lines read, including blank and comment lines.
+     *
+     * @return the line count
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+}
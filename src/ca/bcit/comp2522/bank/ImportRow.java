@@ -0,0 +1,237 @@
+package ca.bcit.comp2522.bank;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A cursor over one line of an import file held in a byte buffer.
+ * A line is split into fields either at commas or at fixed column widths;
+ * fields are located by offset and numbers and dates are parsed straight
+ * from the bytes, so only text fields are ever copied into Strings.
+ * A row is reused for every line of a chunk and is not thread-safe.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+final class ImportRow {
+
+    private static final byte SEPARATOR = ',';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte PAD = ' ';
+    private static final byte DATE_SEPARATOR = '-';
+    private static final byte DECIMAL_POINT = '.';
+    private static final byte MINUS = '-';
+    private static final int RADIX = 10;
+    private static final int MAX_CENT_DIGITS = 2;
+    private static final int MAX_INT_DIGITS = 9;
+    private static final int MAX_LONG_DIGITS = 15;
+
+    private final ByteBuffer buffer;
+    private final int[] starts;
+    private final int[] ends;
+    private int count;
+
+    /**
+     * Constructs a row over a buffer.
+     *
+     * @param buffer the bytes holding the lines
+     * @param maxFields the most fields a line may have
+     */
+    ImportRow(final ByteBuffer buffer, final int maxFields) {
+        this.buffer = buffer;
+        this.starts = new int[maxFields];
+        this.ends = new int[maxFields];
+    }
+
+    /**
+     * Points the row at the line between two offsets and splits it into fields
+     * at commas.
+     * A trailing carriage return is ignored.
+     *
+     * @param start offset of the first byte of the line
+     * @param end offset just past the last byte of the line, excluding the newline
+     * @return the number of fields, or -1 if the line has more than maxFields
+     */
+    int split(final int start, final int end) {
+        final int last = trimLineEnd(start, end);
+        int fieldStart = start;
+
+        count = 0;
+        for (int i = start; i <= last; i++) {
+            if (i == last || buffer.get(i) == SEPARATOR) {
+                if (count == starts.length) {
+                    return -1;
+                }
+                starts[count] = fieldStart;
+                ends[count] = i;
+                count++;
+                fieldStart = i + 1;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Points the row at the line between two offsets and cuts it into fields
+     * of fixed widths. Trailing spaces of each field are ignored, and a line
+     * that ends early leaves its missing fields empty.
+     *
+     * @param start offset of the first byte of the line
+     * @param end offset just past the last byte of the line, excluding the newline
+     * @param widths the width of each field in bytes
+     * @return the number of fields
+     */
+    int slice(final int start, final int end, final int[] widths) {
+        final int last = trimLineEnd(start, end);
+        int fieldStart = start;
+
+        count = widths.length;
+        for (int i = 0; i < count; i++) {
+            final int from = Math.min(fieldStart, last);
+            int trimmed = Math.min(fieldStart + widths[i], last);
+
+            while (trimmed > from && buffer.get(trimmed - 1) == PAD) {
+                trimmed--;
+            }
+            starts[i] = from;
+            ends[i] = trimmed;
+            fieldStart += widths[i];
+        }
+
+        return count;
+    }
+
+    private int trimLineEnd(final int start, final int end) {
+        return end > start && buffer.get(end - 1) == CARRIAGE_RETURN ? end - 1 : end;
+    }
+
+    /**
+     * Determines whether a field is empty.
+     *
+     * @param field the field number
+     * @return true if the field has no bytes
+     */
+    boolean isEmpty(final int field) {
+        return starts[field] == ends[field];
+    }
+
+    /**
+     * Decodes a field as UTF-8 text.
+     *
+     * @param field the field number
+     * @return the text
+     */
+    String text(final int field) {
+        final byte[] bytes = new byte[ends[field] - starts[field]];
+
+        buffer.get(starts[field], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a field as a non-negative decimal int.
+     *
+     * @param field the field number
+     * @return the value
+     * @throws IllegalArgumentException if the field is not a number
+     */
+    int intValue(final int field) {
+        return (int) digits(starts[field], ends[field], MAX_INT_DIGITS, field);
+    }
+
+    /**
+     * Parses a field written as yyyy-mm-dd, or empty for no date.
+     *
+     * @param field the field number
+     * @return the shared Date, or null if the field is empty
+     * @throws IllegalArgumentException if the field is not a valid date
+     */
+    Date date(final int field) {
+        if (isEmpty(field)) {
+            return null;
+        }
+
+        final int start = starts[field];
+        final int end = ends[field];
+        final int firstDash = indexOf(DATE_SEPARATOR, start, end);
+        final int secondDash = firstDash < 0 ? -1 : indexOf(DATE_SEPARATOR, firstDash + 1, end);
+
+        if (secondDash < 0) {
+            throw new IllegalArgumentException("Invalid date in field " + field);
+        }
+
+        return Date.of((int) digits(start, firstDash, MAX_INT_DIGITS, field),
+                (int) digits(firstDash + 1, secondDash, MAX_INT_DIGITS, field),
+                (int) digits(secondDash + 1, end, MAX_INT_DIGITS, field));
+    }
+
+    /**
+     * Parses a field holding dollars with up to two decimal places into cents.
+     * An empty field is zero.
+     *
+     * @param field the field number
+     * @return the amount in cents
+     * @throws IllegalArgumentException if the field is not an amount
+     */
+    long cents(final int field) {
+        if (isEmpty(field)) {
+            return 0;
+        }
+
+        final boolean negative = buffer.get(starts[field]) == MINUS;
+        final int start = negative ? starts[field] + 1 : starts[field];
+        final int end = ends[field];
+        final int point = indexOf(DECIMAL_POINT, start, end);
+        final long dollars = digits(start, point < 0 ? end : point, MAX_LONG_DIGITS, field);
+        long cents = 0;
+
+        if (point >= 0) {
+            final int fraction = end - point - 1;
+
+            if (fraction > MAX_CENT_DIGITS) {
+                throw new IllegalArgumentException("Too many decimals in field " + field);
+            }
+            cents = fraction == 0 ? 0 : digits(point + 1, end, MAX_CENT_DIGITS, field);
+            if (fraction == 1) {
+                cents *= RADIX;
+            }
+        }
+
+        final long total = dollars * Money.CENTS_PER_DOLLAR + cents;
+
+        return negative ? -total : total;
+    }
+
+    private int indexOf(final byte target, final int from, final int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Parses a run of ASCII digits, rejecting empty runs, other bytes and overlong values.
+     */
+    private long digits(final int start, final int end, final int maxDigits, final int field) {
+        if (start >= end || end - start > maxDigits) {
+            throw new IllegalArgumentException("Invalid number in field " + field);
+        }
+
+        long value = 0;
+
+        for (int i = start; i < end; i++) {
+            final int digit = buffer.get(i) - '0';
+
+            if (digit < 0 || digit >= RADIX) {
+                throw new IllegalArgumentException("Invalid number in field " + field);
+            }
+            value = value * RADIX + digit;
+        }
+
+        return value;
+    }
+}
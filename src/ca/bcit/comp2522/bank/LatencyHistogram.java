@@ -0,0 +1,113 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, thread-safe histogram of latencies in nanoseconds.
+ * Values below 32 are counted exactly; larger values fall into log-linear
+ * buckets, 32 per power of two, so every reported percentile is within about
+ * 3% of the true value. Recording is a few shifts and one atomic increment
+ * and never allocates.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HIGHEST_BIT = Long.SIZE - 2;
+    private static final int BUCKETS = (HIGHEST_BIT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final double MAX_PERCENTILE = 100.0;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values count as 0
+     */
+    public void record(final long nanos) {
+        counts.getAndIncrement(indexOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long total = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+
+        return total;
+    }
+
+    /**
+     * Returns the latency at or below which a given percentage of recorded
+     * latencies fall, rounded down to the start of its bucket.
+     *
+     * @param percentile the percentage, between 0 and 100
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getPercentile(final double percentile) {
+        if (!(percentile >= 0 && percentile <= MAX_PERCENTILE)) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+
+        final long total = getCount();
+        final long rank = Math.max(1, (long) Math.ceil(total * percentile / MAX_PERCENTILE));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return lowestValueOf(i);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Clears every recorded latency.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /*
+     * Maps a non-negative value to its bucket.
+     */
+    private static int indexOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final int shift = HIGHEST_BIT + 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /*
+     * Returns the smallest value that maps to a bucket.
+     */
+    private static long lowestValueOf(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        final int shift = index / SUB_BUCKETS - 1;
+        final long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+
+        return subBucket << shift;
+    }
+}
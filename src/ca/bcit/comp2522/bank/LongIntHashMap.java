@@ -0,0 +1,157 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * An open-addressing hash map from long keys to int values.
+ * Keys and values live in two parallel primitive arrays and collisions
+ * are resolved by linear probing, so no entry objects are allocated.
+ * The key 0 is reserved to mark empty slots.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+final class LongIntHashMap {
+
+    /** Value returned by get when a key is absent. */
+    static final int MISSING = -1;
+
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 16;
+    private static final int LOAD_FACTOR_SHIFT = 1;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int HASH_SHIFT = 32;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Constructs a map sized to hold the expected number of entries
+     * without rehashing.
+     *
+     * @param expectedSize the number of entries expected
+     */
+    LongIntHashMap(final int expectedSize) {
+        final int capacity = capacityFor(expectedSize);
+
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /*
+     * Returns a power-of-two capacity that keeps the load factor at or below one half.
+     */
+    private static int capacityFor(final int expectedSize) {
+        final int wanted = Math.max(MIN_CAPACITY, expectedSize << LOAD_FACTOR_SHIFT);
+
+        return Integer.highestOneBit(wanted - 1) << 1;
+    }
+
+    /*
+     * Spreads the bits of a key so IDs sharing a prefix land in different slots.
+     */
+    private static int hash(final long key) {
+        final long mixed = key * GOLDEN_RATIO;
+
+        return (int) (mixed ^ (mixed >>> HASH_SHIFT));
+    }
+
+    /**
+     * Returns the value mapped to a key.
+     *
+     * @param key the key to look up (must not be 0)
+     * @return the value, or MISSING if the key is absent
+     */
+    int get(final long key) {
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return MISSING;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value.
+     *
+     * @param key the key (must not be 0)
+     * @param value the value
+     * @return the previous value, or MISSING if the key was absent
+     */
+    int put(final long key, final int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("key cannot be 0");
+        }
+
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                final int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+
+        if ((size << LOAD_FACTOR_SHIFT) > keys.length) {
+            rehash(keys.length << 1);
+        }
+
+        return MISSING;
+    }
+
+    /*
+     * Moves every entry into tables of the given capacity.
+     */
+    private void rehash(final int capacity) {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = hash(oldKeys[i]) & mask;
+
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return the number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes held by the key and value tables.
+     *
+     * @return the table footprint in bytes
+     */
+    long tableBytes() {
+        return (long) keys.length * (Long.BYTES + Integer.BYTES);
+    }
+}
@@ -18,8 +18,8 @@ public class Main {
 
         /* Albert Einstein */
         final Name einsteinName = new Name("Albert", "Einstein");
-        final Date einsteinBirth = new Date(1879, 3, 14);
-        final Date einsteinDeath = new Date(1955, 4, 18);
+        final Date einsteinBirth = Date.of(1879, 3, 14);
+        final Date einsteinDeath = Date.of(1955, 4, 18);
 
         System.out.println(einsteinName.getInitials());
         System.out.println(einsteinName.getFullName());
@@ -30,7 +30,7 @@ public class Main {
                 einsteinBirth,
                 einsteinDeath,
                 "abc123",
-                new Date(1900, 1, 1)
+                Date.of(1900, 1, 1)
         );
 
         System.out.println(einsteinClient.getDetails());
@@ -39,8 +39,8 @@ public class Main {
                 einsteinClient,
                 3141,
                 "256123",
-                new Date(1900, 1, 1),
-                new Date(1950, 10, 14)
+                Date.of(1900, 1, 1),
+                Date.of(1950, 10, 14)
         );
 
         einsteinAccount.deposit(1000);
@@ -52,8 +52,8 @@ public class Main {
 
         /* Nelson Mandela */
         final Name mandelaName = new Name("Nelson", "Mandela");
-        final Date mandelaBirth = new Date(1918, 7, 18);
-        final Date mandelaDeath = new Date(2013, 12, 5);
+        final Date mandelaBirth = Date.of(1918, 7, 18);
+        final Date mandelaDeath = Date.of(2013, 12, 5);
 
         System.out.println(mandelaName.getInitials());
         System.out.println(mandelaName.getFullName());
@@ -64,7 +64,7 @@ public class Main {
                 mandelaBirth,
                 mandelaDeath,
                 "654321",
-                new Date(1994, 5, 10)
+                Date.of(1994, 5, 10)
         );
 
         System.out.println(mandelaClient.getDetails());
@@ -73,7 +73,7 @@ public class Main {
                 mandelaClient,
                 4664,
                 "654321",
-                new Date(1994, 5, 10),
+                Date.of(1994, 5, 10),
                 null
         );
 
@@ -87,8 +87,8 @@ public class Main {
 
         /* Frida Kahlo */
         final Name kahloName = new Name("Frida", "Kahlo");
-        final Date kahloBirth = new Date(1907, 7, 6);
-        final Date kahloDeath = new Date(1954, 7, 13);
+        final Date kahloBirth = Date.of(1907, 7, 6);
+        final Date kahloDeath = Date.of(1954, 7, 13);
 
         System.out.println(kahloName.getInitials());
         System.out.println(kahloName.getFullName());
@@ -99,7 +99,7 @@ public class Main {
                 kahloBirth,
                 kahloDeath,
                 "frd123",
-                new Date(1940, 1, 1)
+                Date.of(1940, 1, 1)
         );
 
         System.out.println(kahloClient.getDetails());
@@ -108,8 +108,8 @@ public class Main {
                 kahloClient,
                 1907,
                 "672123",
-                new Date(1940, 1, 1),
-                new Date(1954, 7, 13)
+                Date.of(1940, 1, 1),
+                Date.of(1954, 7, 13)
         );
 
         kahloAccount.deposit(500);
@@ -122,7 +122,7 @@ public class Main {
 
         /* Jackie Chan */
         final Name chanName = new Name("Jackie", "Chan");
-        final Date chanBirth = new Date(1954, 4, 7);
+        final Date chanBirth = Date.of(1954, 4, 7);
 
         System.out.println(chanName.getInitials());
         System.out.println(chanName.getFullName());
@@ -133,7 +133,7 @@ public class Main {
                 chanBirth,
                 null,
                 "chan789",
-                new Date(1980, 10, 1)
+                Date.of(1980, 10, 1)
         );
 
         System.out.println(chanClient.getDetails());
@@ -142,7 +142,7 @@ public class Main {
                 chanClient,
                 1954,
                 "496789",
-                new Date(1980, 10, 1),
+                Date.of(1980, 10, 1),
                 null
         );
 
@@ -0,0 +1,97 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Helpers for amounts of money held as a whole number of cents in a long.
+ * Cents make balances exact, arithmetic overflow is detected instead of
+ * wrapping, and formatting writes digits straight into a StringBuilder
+ * without going through double or BigDecimal.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class Money {
+
+    /** Number of cents in one dollar. */
+    public static final int CENTS_PER_DOLLAR = 100;
+
+    /** Largest dollar amount a double can convert to cents exactly (2^53 cents). */
+    private static final double MAX_EXACT_DOLLARS = (double) (1L << 53) / CENTS_PER_DOLLAR;
+
+    private static final int CHNG_TO_DD = 10;
+
+    private Money() {
+    }
+
+    /**
+     * Converts an amount in dollars to cents, rounding to the nearest cent.
+     *
+     * @param amount the amount in dollars
+     * @return the amount in cents
+     * @throws IllegalArgumentException if the amount is not a number, infinite,
+     *         or too large to convert exactly
+     */
+    public static long toCents(final double amount) {
+        if (!(Math.abs(amount) <= MAX_EXACT_DOLLARS)) {
+            throw new IllegalArgumentException("Invalid amount: " + amount);
+        }
+        return Math.round(amount * CENTS_PER_DOLLAR);
+    }
+
+    /**
+     * Converts an amount in cents to dollars. The result may be inexact.
+     *
+     * @param cents the amount in cents
+     * @return the amount in dollars
+     */
+    public static double toDollars(final long cents) {
+        return (double) cents / CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Adds two amounts in cents.
+     *
+     * @param a the first amount
+     * @param b the second amount
+     * @return the sum
+     * @throws ArithmeticException if the sum overflows a long
+     */
+    public static long add(final long a, final long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Appends an amount in cents as dollars with two decimal places, e.g. "-12.05".
+     *
+     * @param cents the amount in cents
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public static StringBuilder appendTo(final long cents, final StringBuilder out) {
+        if (cents < 0) {
+            out.append('-');
+        }
+
+        // Dividing a negative value keeps Long.MIN_VALUE from overflowing on negation
+        final long negative = cents < 0 ? cents : -cents;
+        final long dollars = -(negative / CENTS_PER_DOLLAR);
+        final int remainder = (int) -(negative % CENTS_PER_DOLLAR);
+
+        out.append(dollars).append('.');
+        if (remainder < CHNG_TO_DD) {
+            out.append('0');
+        }
+
+        return out.append(remainder);
+    }
+
+    /**
+     * Formats an amount in cents as dollars with two decimal places.
+     *
+     * @param cents the amount in cents
+     * @return the formatted amount
+     */
+    public static String format(final long cents) {
+        return appendTo(cents, new StringBuilder()).toString();
+    }
+}
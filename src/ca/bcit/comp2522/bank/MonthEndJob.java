@@ -0,0 +1,301 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * The month-end batch job: accrues interest on every open account and writes
+ * a statement line for each one.
+ * <p>
+ * Both steps split the registry into ranges of account indexes and run them
+ * on a fork/join pool. Accrual is for a named month. Each account records the
+ * last month it was paid for, and an account already paid for that month, or
+ * a later one, is skipped, so running the job twice, or resuming a run that
+ * failed part way, never pays a month twice. The interest is computed from
+ * the balance it is added to, in the same compare-and-set, so it takes no
+ * locks and runs alongside live traffic: a withdrawal that lands first is
+ * not paid interest, and one that lands after is taken from the new balance.
+ * Each account is accrued at its own instant, not at one point in time for
+ * the whole book. The deposits are seen by transaction listeners such as a
+ * journal. The accrued month lives only in memory: accounts loaded from a
+ * snapshot or rebuilt from a journal start with no month accrued.
+ * Statements are written to one file per segment, each by its own
+ * StatementWriter, so segments never share a buffer or a file. An account is
+ * open when it has no closing date.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class MonthEndJob {
+
+    /** Basis points in 100%. */
+    private static final long BASIS_POINTS = 10_000;
+
+    private static final long MONTHS_PER_YEAR = 12;
+    private static final int DECEMBER = 12;
+    private static final long RATE_DIVISOR = BASIS_POINTS * MONTHS_PER_YEAR;
+    private static final int MAX_RATE_BASIS_POINTS = 100 * (int) BASIS_POINTS;
+    private static final int ACCOUNTS_PER_TASK = 4096;
+    private static final String SEGMENT_NAME = "statements-%04d.txt";
+
+    private final int annualRateBasisPoints;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a job that runs on the common fork/join pool.
+     *
+     * @param annualRateBasisPoints the yearly interest rate in hundredths of a percent
+     * @throws IllegalArgumentException if the rate is negative or above 10,000%
+     */
+    public MonthEndJob(final int annualRateBasisPoints) {
+        this(annualRateBasisPoints, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a job that runs on a given fork/join pool.
+     *
+     * @param annualRateBasisPoints the yearly interest rate in hundredths of a percent
+     * @param pool the pool to run on
+     * @throws IllegalArgumentException if the rate is negative or above 10,000%,
+     *         or the pool is null
+     */
+    public MonthEndJob(final int annualRateBasisPoints, final ForkJoinPool pool) {
+        if (annualRateBasisPoints < 0 || annualRateBasisPoints > MAX_RATE_BASIS_POINTS) {
+            throw new IllegalArgumentException("Invalid interest rate: " + annualRateBasisPoints);
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("pool cannot be null");
+        }
+
+        this.annualRateBasisPoints = annualRateBasisPoints;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns one month of interest on a balance, rounded down to the cent.
+     *
+     * @param balanceCents the balance in cents
+     * @return the interest in cents, 0 if the balance is not positive, or
+     *         Long.MAX_VALUE if the interest does not fit in a long (such a
+     *         deposit always overflows, so accrue skips the account)
+     */
+    public long interestOn(final long balanceCents) {
+        if (balanceCents <= 0) {
+            return 0;
+        }
+
+        // Split the balance around the divisor so the remainder term stays small;
+        // the whole term can still exceed a long at high rates, so check its high bits
+        final long whole = balanceCents / RATE_DIVISOR;
+        final long wholeInterest = whole * annualRateBasisPoints;
+
+        if (Math.multiplyHigh(whole, annualRateBasisPoints) != 0 || wholeInterest < 0) {
+            return Long.MAX_VALUE;
+        }
+
+        final long partInterest = balanceCents % RATE_DIVISOR * annualRateBasisPoints / RATE_DIVISOR;
+
+        return wholeInterest > Long.MAX_VALUE - partInterest
+                ? Long.MAX_VALUE
+                : wholeInterest + partInterest;
+    }
+
+    /**
+     * Deposits one month of interest into every open account of a registry
+     * that has not yet been paid for that month or a later one. Accounts that
+     * would overflow are skipped, and count as paid for the month.
+     *
+     * @param registry the accounts to accrue
+     * @param year the year of the month to pay
+     * @param month the month to pay, from 1 to 12
+     * @return the total interest paid in cents
+     * @throws IllegalArgumentException if registry is null, or the year or month is out of range
+     */
+    public long accrue(final AccountRegistry registry, final int year, final int month) {
+        if (registry == null) {
+            throw new IllegalArgumentException("registry cannot be null");
+        }
+        return pool.invoke(new Accrual(registry, monthIndex(year, month), 0, registry.size()));
+    }
+
+    /*
+     * Numbers months consecutively from year 0, so later months compare greater.
+     */
+    private static int monthIndex(final int year, final int month) {
+        if (year < Date.MIN_YEAR || year > Integer.MAX_VALUE / DECEMBER - 1) {
+            throw new IllegalArgumentException("Invalid year: " + year);
+        }
+        if (month < 1 || month > DECEMBER) {
+            throw new IllegalArgumentException("Invalid month: " + month);
+        }
+        return year * DECEMBER + month - 1;
+    }
+
+    /**
+     * Writes a statement line for every open account of a registry, splitting
+     * the accounts by index into segments written in parallel. Segment i is
+     * named statements-i.txt with i padded to four digits.
+     *
+     * @param registry the accounts to describe
+     * @param directory the directory to write the segments to (created if missing)
+     * @param segments the number of segment files
+     * @return the segment files in account order
+     * @throws IOException if a segment cannot be written
+     * @throws IllegalArgumentException if registry or directory is null, or segments is less than 1
+     */
+    public List<Path> writeStatements(final AccountRegistry registry,
+                                      final Path directory,
+                                      final int segments) throws IOException {
+        if (registry == null || directory == null) {
+            throw new IllegalArgumentException("registry and directory cannot be null");
+        }
+        if (segments < 1) {
+            throw new IllegalArgumentException("segments must be at least 1");
+        }
+
+        Files.createDirectories(directory);
+
+        final List<Path> files = new ArrayList<>(segments);
+
+        for (int i = 0; i < segments; i++) {
+            files.add(directory.resolve(String.format(SEGMENT_NAME, i)));
+        }
+
+        try {
+            pool.invoke(new Statements(registry, files, 0, segments));
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        return files;
+    }
+
+    /**
+     * Accrues interest for a month, then writes statements showing the new balances.
+     *
+     * @param registry the accounts to process
+     * @param year the year of the month to pay
+     * @param month the month to pay, from 1 to 12
+     * @param directory the directory to write the segments to
+     * @param segments the number of segment files
+     * @return the total interest paid in cents
+     * @throws IOException if a segment cannot be written
+     * @throws IllegalArgumentException as for accrue and writeStatements
+     */
+    public long run(final AccountRegistry registry,
+                    final int year,
+                    final int month,
+                    final Path directory,
+                    final int segments) throws IOException {
+        final long interest = accrue(registry, year, month);
+
+        writeStatements(registry, directory, segments);
+        return interest;
+    }
+
+    private static boolean isOpen(final BankAccount account) {
+        return account.getAccountClosed() == null;
+    }
+
+    /*
+     * Accrues a range of account indexes, halving it until it is small enough.
+     * Tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private final class Accrual extends RecursiveTask<Long> {
+        private final AccountRegistry registry;
+        private final int month;
+        private final int from;
+        private final int to;
+
+        private Accrual(final AccountRegistry registry, final int month, final int from, final int to) {
+            this.registry = registry;
+            this.month = month;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > ACCOUNTS_PER_TASK) {
+                final int middle = (from + to) >>> 1;
+                final Accrual left = new Accrual(registry, month, from, middle);
+
+                left.fork();
+                final long right = new Accrual(registry, month, middle, to).compute();
+
+                return right + left.join();
+            }
+
+            final LongUnaryOperator interest = MonthEndJob.this::interestOn;
+            long total = 0;
+
+            for (int i = from; i < to; i++) {
+                final BankAccount account = registry.get(i);
+
+                if (isOpen(account)) {
+                    total += account.accrueInterest(month, interest);
+                }
+            }
+
+            return total;
+        }
+    }
+
+    /*
+     * Writes a range of segments, splitting it until each task owns one segment.
+     */
+    @SuppressWarnings("serial")
+    private static final class Statements extends RecursiveAction {
+        private final AccountRegistry registry;
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+
+        private Statements(final AccountRegistry registry,
+                           final List<Path> files,
+                           final int from,
+                           final int to) {
+            this.registry = registry;
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+
+                invokeAll(new Statements(registry, files, from, middle),
+                        new Statements(registry, files, middle, to));
+                return;
+            }
+
+            final long accounts = registry.size();
+            final int start = (int) (accounts * from / files.size());
+            final int end = (int) (accounts * to / files.size());
+
+            try (StatementWriter writer = new StatementWriter(files.get(from))) {
+                for (int i = start; i < end; i++) {
+                    final BankAccount account = registry.get(i);
+
+                    if (isOpen(account)) {
+                        writer.write(account);
+                    }
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
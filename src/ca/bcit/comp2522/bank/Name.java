@@ -1,8 +1,15 @@
 package ca.bcit.comp2522.bank;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * A Name class that stores a BankClient's first and last name
  * with few simple methods.
+ * <p>
+ * The full name, initials and reversed name are built on first use and
+ * kept, shared through a pool of Strings so many clients with a common
+ * name hold one copy of each form. Names created with of share their first
+ * and last name Strings through the same pool.
  *
  * @author Giant Mak
  * @author Brian Lau
@@ -14,7 +21,16 @@ public class Name
     private final String first;
     private final String last;
 
-    private static final int MAX_CHARACTER_LENGTH = 100;
+    /** Most distinct Strings the pool will hold before it stops growing. */
+    private static final int MAX_POOL_SIZE = 1 << 16;
+
+    /** Shared copies of first and last names. */
+    private static final ConcurrentHashMap<String, String> POOL = new ConcurrentHashMap<>();
+
+    /* Derived forms, built on first use */
+    private String fullName;
+    private String initials;
+    private String reverseName;
 
     /**
      * Instantiate a name value with first and last name.
@@ -25,13 +41,80 @@ public class Name
    public Name(final String first,
                final String last)
     {
-        validateName(first);
-        validateName(last);
+        this(first, last, true);
+    }
+
+    /*
+     * Instantiates a name, validating it only when asked to.
+     */
+    private Name(final String first,
+                 final String last,
+                 final boolean validate)
+    {
+        if (validate)
+        {
+            validateName(first);
+            validateName(last);
+        }
 
         this.first = first;
         this.last = last;
     }
 
+    /**
+     * Returns a validated name whose first and last name Strings are shared
+     * with other names created by this method.
+     *
+     * @param first first name
+     * @param last last name
+     * @return the name
+     * @throws IllegalArgumentException if either name is null, blank,
+     *         too long, or a restricted value
+     */
+    public static Name of(final String first,
+                          final String last)
+    {
+        validateName(first);
+        validateName(last);
+        return new Name(intern(first), intern(last), false);
+    }
+
+    /**
+     * Instantiates a name from a trusted source, such as a snapshot written
+     * from already validated names, without validating it again. The name
+     * shares its Strings like one created with of.
+     *
+     * @param first first name
+     * @param last last name
+     * @return the name
+     */
+    static Name trusted(final String first,
+                        final String last)
+    {
+        return new Name(intern(first), intern(last), false);
+    }
+
+    /*
+     * Returns the pooled copy of a String, adding it while the pool has room.
+     */
+    private static String intern(final String name)
+    {
+        final String shared = POOL.get(name);
+
+        if (shared != null)
+        {
+            return shared;
+        }
+        if (POOL.size() >= MAX_POOL_SIZE)
+        {
+            return name;
+        }
+
+        final String previous = POOL.putIfAbsent(name, name);
+
+        return previous == null ? name : previous;
+    }
+
     /**
      * Validates a name string.
      *
@@ -41,7 +124,7 @@ public class Name
      */
     private static void validateName(final String name)
     {
-        if(name == null || name.isBlank() || name.length() >= MAX_CHARACTER_LENGTH || name.toLowerCase().contains("admin"))
+        if (!Validation.isValidName(name))
         {
             throw new IllegalArgumentException("Name is not valid: " + name);
         }
@@ -87,8 +170,15 @@ public class Name
      */
     public String getInitials()
     {
+        String text = initials;
+
+        if (text == null)
+        {
+            text = intern(getInitial(first) + "." + getInitial(last) + ".");
+            initials = text;
+        }
 
-        return getInitial(first) + "." + getInitial(last) + ".";
+        return text;
     }
 
     /**
@@ -110,7 +200,26 @@ public class Name
      */
     public String getFullName()
     {
-        return capitalizeInitial(first) + " " + capitalizeInitial(last);
+        String text = fullName;
+
+        if (text == null)
+        {
+            text = intern(capitalizeInitial(first) + " " + capitalizeInitial(last));
+            fullName = text;
+        }
+
+        return text;
+    }
+
+    /**
+     * Appends the full name in proper case to a builder.
+     *
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendFullName(final StringBuilder out)
+    {
+        return out.append(getFullName());
     }
 
     /**
@@ -120,8 +229,16 @@ public class Name
      */
     public String getReverseName()
     {
-       return new StringBuilder(last).reverse().toString() +
-               " " +
-               new StringBuilder(first).reverse().toString();
+        String text = reverseName;
+
+        if (text == null)
+        {
+            text = intern(new StringBuilder(last).reverse().toString() +
+                    " " +
+                    new StringBuilder(first).reverse().toString());
+            reverseName = text;
+        }
+
+        return text;
     }
 }
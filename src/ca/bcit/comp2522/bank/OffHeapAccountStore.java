@@ -0,0 +1,449 @@
+package ca.bcit.comp2522.bank;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A store that keeps accounts outside the Java heap, so the heap used by the
+ * accounts does not grow with the size of the book.
+ * <p>
+ * Each account is one 64-byte slot in a direct buffer holding its account
+ * number key, PIN salt and hash, balance, opening and closing epoch days,
+ * the index of its client, and its PIN failure state. Slots are allocated in
+ * chunks of 2^20 as the store fills, and each chunk starts on a 64-byte
+ * boundary so a slot never straddles a cache line. Account numbers are found
+ * through an open-addressing index of slot numbers that also lives off the
+ * heap. Recent correct PINs are remembered, as BankAccount's credentials
+ * remember them, in a fixed 64 KB off-heap table shared by all accounts and
+ * indexed by slot number; an account whose entry has been taken by another
+ * simply hashes its PIN again.
+ * <p>
+ * The clients are not moved off the heap. The store keeps each distinct
+ * client reachable, so its heap use is O(clients): every BankClient with its
+ * Name, Dates and ID, plus 12 to 24 bytes of bookkeeping per client in an
+ * array and an identity table of ints. A book whose accounts mostly share
+ * clients stays nearly off the heap; one with a client per account still
+ * holds every client on it, and only the accounts themselves leave.
+ * <p>
+ * Accounts are read and changed through AccountView flyweights. The balance
+ * and PIN failure state are updated by compare-and-set on the slot itself,
+ * so any number of views on any threads can transact on the same account
+ * without locks, with the same rules as BankAccount. Adding accounts is
+ * synchronized; a slot is fully written before its index entry is published,
+ * so lookups never see a half-written account.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class OffHeapAccountStore {
+
+    /** Size of one account slot in bytes. */
+    static final int SLOT_BYTES = 64;
+
+    /* Field offsets within a slot */
+    static final int KEY = 0;
+    static final int SALT = 8;
+    static final int HASH_HIGH = 16;
+    static final int HASH_LOW = 24;
+    static final int BALANCE = 32;
+    static final int OPENED_DAY = 40;
+    static final int CLOSED_DAY = 44;
+    static final int CLIENT_INDEX = 48;
+    static final int PIN_STATE = 56;
+
+    /** Epoch day stored for a missing date. */
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    /* Layout of an entry in the cache of recent correct PINs */
+    static final int PIN_CACHE_BYTES = 16;
+    static final int CACHED_TOKEN = 0;
+    static final int CACHED_UNTIL = 8;
+
+    /** Atomic access to the long fields of a slot. */
+    static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /** Atomic access to the int fields of a slot and to the index. */
+    static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    /** Largest number of accounts one store can hold. */
+    public static final int MAX_CAPACITY = 1 << 29;
+
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    private static final int INDEX_SHIFT = 24;
+    private static final int INDEX_MASK = (1 << INDEX_SHIFT) - 1;
+    private static final int LOAD_FACTOR_SHIFT = 1;
+    private static final int CACHE_LINE_BYTES = 64;
+    private static final int INITIAL_CLIENTS = 16;
+    private static final int EMPTY = 0;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int HASH_SHIFT = 32;
+    private static final int PIN_CACHE_SHIFT = 12;
+    private static final int PIN_CACHE_MASK = (1 << PIN_CACHE_SHIFT) - 1;
+
+    private final int capacity;
+    private final ByteBuffer[] chunks;
+    private final ByteBuffer[] index;
+    private final int indexMask;
+    private final ByteBuffer pinCache = allocate(PIN_CACHE_BYTES << PIN_CACHE_SHIFT);
+
+    private BankClient[] clients = new BankClient[INITIAL_CLIENTS];
+    /* Open-addressing identity table of client index + 1, EMPTY when unused */
+    private int[] clientTable = new int[INITIAL_CLIENTS << LOAD_FACTOR_SHIFT];
+    private int clientCount;
+    private volatile int size;
+
+    /**
+     * Constructs an empty store. The index is allocated up front; account
+     * slots are allocated a chunk at a time as accounts are added.
+     *
+     * @param capacity the largest number of accounts the store will hold
+     * @throws IllegalArgumentException if capacity is less than 1 or above MAX_CAPACITY
+     */
+    public OffHeapAccountStore(final int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        final int entries = Integer.highestOneBit((capacity << LOAD_FACTOR_SHIFT) - 1) << 1;
+
+        this.capacity = capacity;
+        this.chunks = new ByteBuffer[((capacity - 1) >>> CHUNK_SHIFT) + 1];
+        this.index = new ByteBuffer[((entries - 1) >>> INDEX_SHIFT) + 1];
+        this.indexMask = entries - 1;
+
+        for (int i = 0; i < index.length; i++) {
+            final int chunkEntries = Math.min(INDEX_MASK + 1, entries - (i << INDEX_SHIFT));
+
+            index[i] = allocate(chunkEntries * Integer.BYTES);
+        }
+    }
+
+    /**
+     * Copies every account of a registry into a new store of the same size.
+     *
+     * @param registry the accounts to copy
+     * @return the store
+     * @throws IllegalArgumentException if registry is null or empty
+     */
+    public static OffHeapAccountStore of(final AccountRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("registry cannot be null");
+        }
+
+        final OffHeapAccountStore store = new OffHeapAccountStore(registry.size());
+
+        for (int i = 0; i < registry.size(); i++) {
+            store.add(registry.get(i));
+        }
+        return store;
+    }
+
+    /*
+     * Allocates a zeroed direct buffer that starts on a cache line.
+     */
+    private static ByteBuffer allocate(final int bytes) {
+        return ByteBuffer.allocateDirect(bytes + CACHE_LINE_BYTES)
+                .alignedSlice(CACHE_LINE_BYTES)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    /*
+     * Spreads the bits of a key so IDs sharing a prefix land in different entries.
+     */
+    private static int hash(final long key) {
+        final long mixed = key * GOLDEN_RATIO;
+
+        return (int) (mixed ^ (mixed >>> HASH_SHIFT));
+    }
+
+    /**
+     * Adds a new account, validated as by the BankAccount constructor.
+     * The PIN is hashed and only its salt and hash are stored.
+     *
+     * @param client the owner of the account
+     * @param pin the PIN used to authenticate withdrawals
+     * @param accountNumber the account number (6–7 characters long)
+     * @param accountOpened the date the account was opened
+     * @param accountClosed the date the account was closed (may be null)
+     * @return the index of the account
+     * @throws IllegalArgumentException if the client is null, the account
+     *         number is invalid or already stored, or the store is full
+     */
+    public int add(final BankClient client,
+                   final int pin,
+                   final String accountNumber,
+                   final Date accountOpened,
+                   final Date accountClosed) {
+        BankAccount.validate(client, accountNumber);
+        return add(client, PinCredential.of(pin), accountNumber, accountOpened, accountClosed, 0L);
+    }
+
+    /**
+     * Copies an account into the store, including its balance and stored PIN.
+     * Later changes to either copy are not seen by the other.
+     *
+     * @param account the account to copy
+     * @return the index of the account
+     * @throws IllegalArgumentException if the account is null, its number is
+     *         already stored, or the store is full
+     */
+    public int add(final BankAccount account) {
+        if (account == null) {
+            throw new IllegalArgumentException("account cannot be null");
+        }
+        return add(account.getClient(), account.getPinCredential(), account.getAccountNumber(),
+                account.getAccountOpened(), account.getAccountClosed(), account.getBalanceCents());
+    }
+
+    /*
+     * Writes a slot, then publishes it in the index and the size.
+     */
+    private synchronized int add(final BankClient client,
+                                 final PinCredential pin,
+                                 final String accountNumber,
+                                 final Date accountOpened,
+                                 final Date accountClosed,
+                                 final long balanceCents) {
+        final long key = IdCodec.encode(accountNumber);
+        final int slot = size;
+
+        if (slot == capacity) {
+            throw new IllegalArgumentException("Store is full: " + capacity + " accounts");
+        }
+        if (indexOf(key) != LongIntHashMap.MISSING) {
+            throw new IllegalArgumentException("Duplicate account number: " + accountNumber);
+        }
+
+        final int chunk = slot >>> CHUNK_SHIFT;
+
+        if (chunks[chunk] == null) {
+            final int slots = Math.min(CHUNK_MASK + 1, capacity - (chunk << CHUNK_SHIFT));
+
+            chunks[chunk] = allocate(slots * SLOT_BYTES);
+        }
+
+        final ByteBuffer buffer = chunks[chunk];
+        final int base = offsetOf(slot);
+
+        buffer.putLong(base + KEY, key);
+        buffer.putLong(base + SALT, pin.getSalt());
+        buffer.putLong(base + HASH_HIGH, pin.getHashHigh());
+        buffer.putLong(base + HASH_LOW, pin.getHashLow());
+        buffer.putLong(base + BALANCE, balanceCents);
+        buffer.putInt(base + OPENED_DAY, accountOpened == null ? NO_DATE : accountOpened.getEpochDay());
+        buffer.putInt(base + CLOSED_DAY, accountClosed == null ? NO_DATE : accountClosed.getEpochDay());
+        buffer.putInt(base + CLIENT_INDEX, clientIndexOf(client));
+        buffer.putLong(base + PIN_STATE, 0L);
+
+        int entry = hash(key) & indexMask;
+
+        while ((int) INTS.getAcquire(index[entry >>> INDEX_SHIFT], indexOffset(entry)) != EMPTY) {
+            entry = (entry + 1) & indexMask;
+        }
+        INTS.setRelease(index[entry >>> INDEX_SHIFT], indexOffset(entry), slot + 1);
+        size = slot + 1;
+
+        return slot;
+    }
+
+    /*
+     * Returns the index of a client, adding it on first use. Clients are
+     * matched by identity, as accounts share the same BankClient object.
+     */
+    private int clientIndexOf(final BankClient client) {
+        final int mask = clientTable.length - 1;
+        int entry = hash(System.identityHashCode(client)) & mask;
+        int stored;
+
+        while ((stored = clientTable[entry]) != EMPTY) {
+            if (clients[stored - 1] == client) {
+                return stored - 1;
+            }
+            entry = (entry + 1) & mask;
+        }
+        if (clientCount == clients.length) {
+            clients = Arrays.copyOf(clients, clientCount * 2);
+            rehashClients(clients.length << LOAD_FACTOR_SHIFT);
+            return clientIndexOf(client);
+        }
+
+        clients[clientCount] = client;
+        clientTable[entry] = clientCount + 1;
+        return clientCount++;
+    }
+
+    /*
+     * Rebuilds the client table at a larger size, keeping the load at or below one half.
+     */
+    private void rehashClients(final int entries) {
+        final int mask = entries - 1;
+
+        clientTable = new int[entries];
+        for (int i = 0; i < clientCount; i++) {
+            int entry = hash(System.identityHashCode(clients[i])) & mask;
+
+            while (clientTable[entry] != EMPTY) {
+                entry = (entry + 1) & mask;
+            }
+            clientTable[entry] = i + 1;
+        }
+    }
+
+    /**
+     * Returns the index of an account.
+     *
+     * @param accountNumber the account number to look up
+     * @return the index, or LongIntHashMap.MISSING (-1) if no account has the number
+     */
+    public int indexOf(final String accountNumber) {
+        final long key = IdCodec.encode(accountNumber);
+
+        return key == IdCodec.NO_KEY ? LongIntHashMap.MISSING : indexOf(key);
+    }
+
+    /*
+     * Probes the index for a key, comparing against the key in each candidate slot.
+     */
+    private int indexOf(final long key) {
+        int entry = hash(key) & indexMask;
+        int stored;
+
+        while ((stored = (int) INTS.getAcquire(index[entry >>> INDEX_SHIFT], indexOffset(entry))) != EMPTY) {
+            final int slot = stored - 1;
+
+            if (chunkOf(slot).getLong(offsetOf(slot) + KEY) == key) {
+                return slot;
+            }
+            entry = (entry + 1) & indexMask;
+        }
+
+        return LongIntHashMap.MISSING;
+    }
+
+    /**
+     * Returns a view that is not yet on any account.
+     *
+     * @return a new view; move it with moveTo
+     */
+    public AccountView view() {
+        return new AccountView(this);
+    }
+
+    /**
+     * Returns a view on an account.
+     *
+     * @param index the account's index
+     * @return a new view on the account
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public AccountView view(final int index) {
+        return new AccountView(this).moveTo(index);
+    }
+
+    /**
+     * Returns the number of accounts in the store.
+     *
+     * @return the account count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the largest number of accounts the store can hold.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of bytes allocated outside the heap so far.
+     *
+     * @return the off-heap bytes used by slots, the index and the PIN cache
+     */
+    public long getOffHeapBytes() {
+        long bytes = pinCache.capacity();
+
+        for (final ByteBuffer chunk : chunks) {
+            bytes += chunk == null ? 0 : chunk.capacity();
+        }
+        for (final ByteBuffer entries : index) {
+            bytes += entries.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Checks that an account index is in range.
+     *
+     * @param slot the index to check
+     * @throws IndexOutOfBoundsException if it is not
+     */
+    void checkIndex(final int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Invalid account index: " + slot);
+        }
+    }
+
+    /**
+     * Returns the buffer holding a slot.
+     *
+     * @param slot the account index
+     * @return its chunk
+     */
+    ByteBuffer chunkOf(final int slot) {
+        return chunks[slot >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * Returns the offset of a slot within its chunk.
+     *
+     * @param slot the account index
+     * @return the byte offset of the slot
+     */
+    static int offsetOf(final int slot) {
+        return (slot & CHUNK_MASK) * SLOT_BYTES;
+    }
+
+    /**
+     * Returns the table of recent correct PINs.
+     *
+     * @return the PIN cache
+     */
+    ByteBuffer pinCache() {
+        return pinCache;
+    }
+
+    /**
+     * Returns the offset of a slot's entry in the PIN cache.
+     *
+     * @param slot the account index
+     * @return the byte offset of its entry, shared with other slots
+     */
+    static int pinCacheOffset(final int slot) {
+        return (slot & PIN_CACHE_MASK) * PIN_CACHE_BYTES;
+    }
+
+    private static int indexOffset(final int entry) {
+        return (entry & INDEX_MASK) * Integer.BYTES;
+    }
+
+    /**
+     * Returns a client by its index in the store.
+     *
+     * @param clientIndex the index stored in an account slot
+     * @return the client
+     */
+    BankClient clientAt(final int clientIndex) {
+        return clients[clientIndex];
+    }
+}
@@ -0,0 +1,428 @@
+package ca.bcit.comp2522.bank;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The stored form of an account PIN and its brute-force protection.
+ * The PIN itself is never kept: only a random salt and the first 128 bits of
+ * HMAC-SHA256(pepper, salt, PIN). Verification compares the two hash halves
+ * with a single branch-free test, so its timing does not depend on how many
+ * bits match.
+ * <p>
+ * A PIN has at most a few billion values, so no unkeyed hash of it, however
+ * slow, stops someone holding the salt and hash from trying them all. The
+ * pepper is what protects the stored form: a secret key held only in memory
+ * and never written to snapshots or off-heap slots. It is read as hex from
+ * the {@value #PEPPER_PROPERTY} system property, which a deployment must set
+ * to the same value in every process that shares snapshots. Without it a
+ * random pepper is drawn at startup, and credentials then only verify in the
+ * process that created them.
+ * <p>
+ * Each credential counts consecutive failures in one atomic word together with
+ * the time a lockout ends, updated by compare-and-set. After MAX_FAILURES wrong
+ * PINs the credential refuses every attempt, without hashing, until the lockout
+ * expires. A correct PIN is remembered for a short time as a 64-bit token,
+ * mixed with a key derived from the pepper, so repeated authentications by the
+ * same customer skip the HMAC. The policy is one static verify method working
+ * through field updaters, so AccountView runs exactly the same code on the
+ * words of an off-heap slot.
+ * <p>
+ * HMAC state is borrowed from a small shared pool rather than kept per
+ * thread, because requests may each run on a fresh virtual thread that would
+ * otherwise build a new Mac for every PIN check.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+final class PinCredential {
+
+    /** Consecutive wrong PINs that trigger a lockout. */
+    static final int MAX_FAILURES = 5;
+
+    /** How long a lockout lasts. */
+    static final long LOCKOUT_MILLIS = 5 * 60 * 1000L;
+
+    /** How long a successful authentication is remembered. */
+    static final long CACHE_MILLIS = 30 * 1000L;
+
+    /** System property holding the pepper as hex. */
+    static final String PEPPER_PROPERTY = "ca.bcit.comp2522.bank.pinPepper";
+
+    /** Shortest pepper accepted from the system property. */
+    static final int MIN_PEPPER_BYTES = 32;
+
+    /* Layout of the state word: lockout end in the high bits, failures in the low byte */
+    private static final int FAILURE_BITS = 8;
+    private static final long FAILURE_MASK = (1L << FAILURE_BITS) - 1;
+
+    private static final int SALT_BYTES = Long.BYTES;
+    private static final int PIN_BYTES = Integer.BYTES;
+    private static final int BITS_PER_BYTE = 8;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int MIX_SHIFT = 31;
+    private static final long MIX_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int TOKEN_KEY_LABEL = 0x746F6B65;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final SecretKeySpec PEPPER = new SecretKeySpec(loadPepper(), ALGORITHM);
+    private static final long TOKEN_KEY = tokenKey();
+
+    /* Pool of idle hashers; a power of two so a thread's first slot is a mask away */
+    private static final int POOL_SIZE =
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2) * 2 - 1);
+    private static final int POOL_MASK = POOL_SIZE - 1;
+    private static final AtomicReferenceArray<Hasher> POOL = new AtomicReferenceArray<>(POOL_SIZE);
+
+    private static final AtomicLongFieldUpdater<PinCredential> STATE =
+            AtomicLongFieldUpdater.newUpdater(PinCredential.class, "state");
+    private static final AtomicLongFieldUpdater<PinCredential> CACHED_TOKEN =
+            AtomicLongFieldUpdater.newUpdater(PinCredential.class, "cachedToken");
+    private static final AtomicLongFieldUpdater<PinCredential> CACHED_UNTIL =
+            AtomicLongFieldUpdater.newUpdater(PinCredential.class, "cachedUntilMillis");
+
+    private final long salt;
+    private final long hashHigh;
+    private final long hashLow;
+
+    private volatile long state;
+    private volatile long cachedToken;
+    private volatile long cachedUntilMillis;
+
+    /**
+     * Reconstructs a credential from its stored salt and hash.
+     *
+     * @param salt the salt
+     * @param hashHigh the first 64 bits of the hash
+     * @param hashLow the next 64 bits of the hash
+     */
+    PinCredential(final long salt, final long hashHigh, final long hashLow) {
+        this.salt = salt;
+        this.hashHigh = hashHigh;
+        this.hashLow = hashLow;
+    }
+
+    /**
+     * Creates a credential for a PIN with a fresh random salt.
+     *
+     * @param pin the PIN to protect
+     * @return the credential
+     */
+    static PinCredential of(final int pin) {
+        final long salt = RANDOM.nextLong();
+        final Hasher hasher = borrow();
+
+        try {
+            hasher.hash(salt, pin);
+            return new PinCredential(salt, hasher.high, hasher.low);
+        } finally {
+            giveBack(hasher);
+        }
+    }
+
+    /**
+     * Checks a PIN, applying the lockout policy.
+     *
+     * @param pin the PIN to check
+     * @return SUCCESS, WRONG_PIN, or LOCKED_OUT if too many wrong PINs were
+     *         entered recently (even a correct PIN is refused while locked)
+     */
+    TransactionStatus verify(final int pin) {
+        return verify(this, STATE, CACHED_TOKEN, CACHED_UNTIL, salt, hashHigh, hashLow, pin);
+    }
+
+    /**
+     * Checks a PIN against a stored salt and hash, applying the lockout policy
+     * and the success cache to the words an updater reaches. PinCredential and
+     * AccountView both verify through this.
+     *
+     * @param holder the object holding the state word and cache
+     * @param state the updater for the state word
+     * @param cachedToken the updater for the token of the last correct PIN
+     * @param cachedUntil the updater for the time that token expires
+     * @param salt the salt
+     * @param hashHigh the first 64 bits of the stored hash
+     * @param hashLow the next 64 bits of the stored hash
+     * @param pin the PIN to check
+     * @param <T> the type that holds the state and cache
+     * @return SUCCESS, WRONG_PIN, or LOCKED_OUT if too many wrong PINs were
+     *         entered recently (even a correct PIN is refused while locked)
+     */
+    static <T> TransactionStatus verify(final T holder,
+                                        final AtomicLongFieldUpdater<T> state,
+                                        final AtomicLongFieldUpdater<T> cachedToken,
+                                        final AtomicLongFieldUpdater<T> cachedUntil,
+                                        final long salt,
+                                        final long hashHigh,
+                                        final long hashLow,
+                                        final int pin) {
+        final long now = System.currentTimeMillis();
+        final long current = state.get(holder);
+
+        if (lockedUntil(current) > now) {
+            return TransactionStatus.LOCKED_OUT;
+        }
+
+        final long token = token(salt, pin);
+
+        if (now < cachedUntil.get(holder) && token == cachedToken.get(holder)) {
+            return TransactionStatus.SUCCESS;
+        }
+
+        if (matches(salt, hashHigh, hashLow, pin)) {
+            if (current != 0) {
+                state.compareAndSet(holder, current, 0);
+            }
+            cachedToken.set(holder, token);
+            cachedUntil.set(holder, now + CACHE_MILLIS);
+            return TransactionStatus.SUCCESS;
+        }
+
+        return recordFailure(holder, state, now);
+    }
+
+    /*
+     * Counts a wrong PIN and starts a lockout when the limit is reached.
+     */
+    private static <T> TransactionStatus recordFailure(final T holder,
+                                                       final AtomicLongFieldUpdater<T> state,
+                                                       final long now) {
+        long current;
+        long updated;
+
+        do {
+            current = state.get(holder);
+            if (lockedUntil(current) > now) {
+                return TransactionStatus.LOCKED_OUT;
+            }
+            updated = afterFailure(current, now);
+        } while (!state.compareAndSet(holder, current, updated));
+
+        return TransactionStatus.WRONG_PIN;
+    }
+
+    /**
+     * Returns the number of wrong PINs entered since the last success or lockout.
+     *
+     * @return the failure count
+     */
+    int getFailures() {
+        return failuresOf(state);
+    }
+
+    /**
+     * Returns the salt, for stores that persist the credential.
+     *
+     * @return the salt
+     */
+    long getSalt() {
+        return salt;
+    }
+
+    /**
+     * Returns the first 64 bits of the stored hash.
+     *
+     * @return the high half of the hash
+     */
+    long getHashHigh() {
+        return hashHigh;
+    }
+
+    /**
+     * Returns the second 64 bits of the stored hash.
+     *
+     * @return the low half of the hash
+     */
+    long getHashLow() {
+        return hashLow;
+    }
+
+    /**
+     * Checks a PIN against a stored salt and hash, without any lockout policy.
+     *
+     * @param salt the salt
+     * @param hashHigh the first 64 bits of the stored hash
+     * @param hashLow the next 64 bits of the stored hash
+     * @param pin the PIN to check
+     * @return true if the PIN hashes to the stored hash
+     */
+    static boolean matches(final long salt, final long hashHigh, final long hashLow, final int pin) {
+        final Hasher hasher = borrow();
+
+        try {
+            hasher.hash(salt, pin);
+            return ((hasher.high ^ hashHigh) | (hasher.low ^ hashLow)) == 0;
+        } finally {
+            giveBack(hasher);
+        }
+    }
+
+    /*
+     * Reads the pepper from the system property, or draws a random one.
+     */
+    private static byte[] loadPepper() {
+        final String hex = System.getProperty(PEPPER_PROPERTY);
+
+        if (hex == null) {
+            final byte[] pepper = new byte[MIN_PEPPER_BYTES];
+
+            RANDOM.nextBytes(pepper);
+            return pepper;
+        }
+
+        final byte[] pepper;
+
+        try {
+            pepper = HexFormat.of().parseHex(hex.strip());
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalStateException(PEPPER_PROPERTY + " is not valid hex", e);
+        }
+        if (pepper.length < MIN_PEPPER_BYTES) {
+            throw new IllegalStateException(PEPPER_PROPERTY + " must hold at least "
+                    + MIN_PEPPER_BYTES + " bytes");
+        }
+        return pepper;
+    }
+
+    /*
+     * Derives the cache token key from the pepper, so tokens are as secret as the hashes.
+     */
+    private static long tokenKey() {
+        final Hasher hasher = new Hasher();
+
+        hasher.hash(0L, TOKEN_KEY_LABEL);
+        return hasher.high;
+    }
+
+    /*
+     * Takes an idle hasher from the pool, starting at a slot picked by thread ID,
+     * or builds a new one if every slot is empty.
+     */
+    private static Hasher borrow() {
+        final int start = (int) Thread.currentThread().threadId();
+
+        for (int i = 0; i < POOL_SIZE; i++) {
+            final Hasher hasher = POOL.getAndSet((start + i) & POOL_MASK, null);
+
+            if (hasher != null) {
+                return hasher;
+            }
+        }
+        return new Hasher();
+    }
+
+    /*
+     * Returns a hasher to the first empty slot, dropping it if the pool is full.
+     */
+    private static void giveBack(final Hasher hasher) {
+        final int start = (int) Thread.currentThread().threadId();
+
+        for (int i = 0; i < POOL_SIZE; i++) {
+            if (POOL.compareAndSet((start + i) & POOL_MASK, null, hasher)) {
+                return;
+            }
+        }
+    }
+
+    /*
+     * Returns the time a lockout ends, in epoch milliseconds, or 0 if never locked.
+     */
+    private static long lockedUntil(final long state) {
+        return state >>> FAILURE_BITS;
+    }
+
+    /*
+     * Returns the state word after one more wrong PIN, starting a lockout
+     * when the limit is reached.
+     */
+    private static long afterFailure(final long state, final long now) {
+        final long failures = (state & FAILURE_MASK) + 1;
+
+        return failures >= MAX_FAILURES
+                ? (now + LOCKOUT_MILLIS) << FAILURE_BITS
+                : failures;
+    }
+
+    /**
+     * Returns the failure count held in a state word.
+     *
+     * @param state the state word
+     * @return the number of consecutive wrong PINs
+     */
+    static int failuresOf(final long state) {
+        return (int) (state & FAILURE_MASK);
+    }
+
+    /*
+     * Mixes a PIN into a secret per-salt key to make the token used by the
+     * authentication cache, so a token cannot match another account's PIN.
+     */
+    private static long token(final long salt, final int pin) {
+        return mix(mix(salt ^ TOKEN_KEY) ^ pin);
+    }
+
+    private static long mix(final long value) {
+        long mixed = value * MIX_MULTIPLIER;
+
+        mixed ^= mixed >>> MIX_SHIFT;
+        return mixed * MIX_MULTIPLIER;
+    }
+
+    /*
+     * Reusable HMAC state, keyed with the pepper, and buffers so hashing does not allocate.
+     */
+    private static final class Hasher {
+        private final Mac mac;
+        private final byte[] input = new byte[SALT_BYTES + PIN_BYTES];
+        private final byte[] output;
+        private long high;
+        private long low;
+
+        private Hasher() {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+                mac.init(PEPPER);
+            } catch (final GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " is not available", e);
+            }
+            output = new byte[mac.getMacLength()];
+        }
+
+        private void hash(final long salt, final int pin) {
+            for (int i = 0; i < SALT_BYTES; i++) {
+                input[i] = (byte) (salt >>> (i * BITS_PER_BYTE));
+            }
+            for (int i = 0; i < PIN_BYTES; i++) {
+                input[SALT_BYTES + i] = (byte) (pin >>> (i * BITS_PER_BYTE));
+            }
+
+            mac.update(input);
+            try {
+                mac.doFinal(output, 0);
+            } catch (final GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+
+            high = readLong(0);
+            low = readLong(Long.BYTES);
+        }
+
+        private long readLong(final int offset) {
+            long value = 0;
+
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << BITS_PER_BYTE) | (output[offset + i] & BYTE_MASK);
+            }
+
+            return value;
+        }
+    }
+}
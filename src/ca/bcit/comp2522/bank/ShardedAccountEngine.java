@@ -0,0 +1,207 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Executes transactions on accounts partitioned into shards, each owned by a
+ * single writer thread. An account always hashes to the same shard by its
+ * account number, so only one thread ever mutates it and its compare-and-set
+ * updates never contend. Callers hand transactions to the shard's bounded
+ * queue, which blocks them when the shard falls behind, and receive a future
+ * completed with the outcome.
+ * <p>
+ * Submitters hold their shard's read lock while they enqueue, and close
+ * takes each shard's write lock before queueing the stop marker. Every
+ * transaction that was accepted is therefore queued ahead of the marker and
+ * applied, and every later submit is rejected.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public class ShardedAccountEngine implements AutoCloseable {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int HASH_SHIFT = 32;
+
+    /** Queued by close to tell a shard thread to finish. */
+    private static final Command STOP = new Command(null, null);
+
+    private final Shard[] shards;
+    private volatile boolean closed;
+
+    /**
+     * Starts an engine with one shard per available processor.
+     */
+    public ShardedAccountEngine() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Starts an engine with a given number of shards.
+     *
+     * @param shardCount the number of shards and writer threads
+     * @param queueCapacity the maximum number of pending transactions per shard
+     * @throws IllegalArgumentException if either argument is less than 1
+     */
+    public ShardedAccountEngine(final int shardCount, final int queueCapacity) {
+        if (shardCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("shardCount and queueCapacity must be at least 1");
+        }
+
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacity);
+            shards[i].start();
+        }
+    }
+
+    /**
+     * Queues a transaction on the shard that owns its account, waiting for
+     * room if that shard's queue is full.
+     *
+     * @param transaction the transaction to apply
+     * @return a future completed with the outcome once the transaction is applied
+     * @throws IllegalArgumentException if the transaction is null
+     * @throws IllegalStateException if the engine is closed
+     */
+    public CompletableFuture<TransactionStatus> submit(final Transaction transaction) {
+        if (transaction == null) {
+            throw new IllegalArgumentException("transaction cannot be null");
+        }
+
+        final Shard shard = shardOf(transaction.getAccount());
+        final Command command = new Command(transaction, new CompletableFuture<>());
+
+        shard.gate.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("engine is closed");
+            }
+            shard.queue.put(command);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            command.result.completeExceptionally(e);
+        } finally {
+            shard.gate.readLock().unlock();
+        }
+
+        return command.result;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /*
+     * Picks the shard of an account from its account number.
+     */
+    private Shard shardOf(final BankAccount account) {
+        final long mixed = IdCodec.encode(account.getAccountNumber()) * GOLDEN_RATIO;
+        final int hash = (int) (mixed ^ (mixed >>> HASH_SHIFT));
+
+        return shards[Math.floorMod(hash, shards.length)];
+    }
+
+    /**
+     * Stops accepting transactions, lets every shard finish the ones already
+     * queued, and waits for the writer threads to exit. A submit already in
+     * progress, even one waiting for queue space, is queued before the shard
+     * stops. If the calling thread is interrupted it stops waiting and keeps
+     * its interrupt status.
+     */
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            for (final Shard shard : shards) {
+                // Waits out submitters that saw the engine open; later ones see it closed
+                shard.gate.writeLock().lock();
+                shard.gate.writeLock().unlock();
+            }
+        }
+        try {
+            for (final Shard shard : shards) {
+                if (shard.isAlive()) {
+                    shard.queue.put(STOP);
+                }
+            }
+            for (final Shard shard : shards) {
+                shard.join();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * A transaction waiting to be applied and the future for its outcome.
+     */
+    private static final class Command {
+        private final Transaction transaction;
+        private final CompletableFuture<TransactionStatus> result;
+
+        private Command(final Transaction transaction,
+                        final CompletableFuture<TransactionStatus> result) {
+            this.transaction = transaction;
+            this.result = result;
+        }
+    }
+
+    /*
+     * The writer thread of one shard. It drains its queue in batches and is the
+     * only thread that applies transactions to the shard's accounts.
+     */
+    private static final class Shard extends Thread {
+        private final BlockingQueue<Command> queue;
+        private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+
+        private Shard(final int index, final int capacity) {
+            super("account-shard-" + index);
+            setDaemon(true);
+            queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            final List<Command> batch = new ArrayList<>();
+
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch);
+
+                    for (final Command command : batch) {
+                        // Nothing is queued behind STOP, since close waits for submitters first
+                        if (command == STOP) {
+                            return;
+                        }
+                        apply(command);
+                    }
+                    batch.clear();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static void apply(final Command command) {
+            try {
+                command.result.complete(command.transaction.apply());
+            } catch (final RuntimeException e) {
+                command.result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams account statements, one getDetails line per account, to a file.
+ * Each line is rendered into a reused StringBuilder, copied into a reused
+ * CharBuffer and encoded as UTF-8 into a direct ByteBuffer that is written
+ * to the file channel whenever it fills, so writing a statement allocates
+ * nothing once the buffers have grown to fit the longest line.
+ * <p>
+ * This class is not thread-safe; use one writer per thread.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public class StatementWriter implements Closeable {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int INITIAL_LINE_CHARS = 256;
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final StringBuilder line = new StringBuilder(INITIAL_LINE_CHARS);
+
+    private char[] lineChars = new char[INITIAL_LINE_CHARS];
+    private CharBuffer chars = CharBuffer.wrap(lineChars);
+
+    /**
+     * Opens a writer that replaces the contents of a file.
+     *
+     * @param file the file to write (created if missing)
+     * @throws IOException if the file cannot be opened
+     */
+    public StatementWriter(final Path file) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes the statement line of one account.
+     *
+     * @param account the account to describe
+     * @throws IOException if the file cannot be written
+     */
+    public void write(final BankAccount account) throws IOException {
+        line.setLength(0);
+        account.appendDetails(line).append(System.lineSeparator());
+        encodeLine();
+    }
+
+    /**
+     * Writes the statement lines of several accounts in iteration order.
+     *
+     * @param accounts the accounts to describe
+     * @throws IOException if the file cannot be written
+     */
+    public void writeAll(final Iterable<BankAccount> accounts) throws IOException {
+        for (final BankAccount account : accounts) {
+            write(account);
+        }
+    }
+
+    /**
+     * Writes the statement lines of every account in a registry.
+     *
+     * @param registry the accounts to describe
+     * @throws IOException if the file cannot be written
+     */
+    public void writeAll(final AccountRegistry registry) throws IOException {
+        for (int i = 0; i < registry.size(); i++) {
+            write(registry.get(i));
+        }
+    }
+
+    /*
+     * Encodes the current line into the byte buffer, draining it to the file as it fills.
+     */
+    private void encodeLine() throws IOException {
+        final int length = line.length();
+
+        if (length > lineChars.length) {
+            lineChars = new char[Math.max(length, lineChars.length << 1)];
+            chars = CharBuffer.wrap(lineChars);
+        }
+
+        line.getChars(0, length, lineChars, 0);
+        chars.clear().limit(length);
+
+        CoderResult result = encoder.encode(chars, bytes, true);
+
+        while (result.isOverflow()) {
+            drain();
+            result = encoder.encode(chars, bytes, true);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        encoder.reset();
+    }
+
+    /*
+     * Writes everything in the byte buffer to the file.
+     */
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Writes any buffered statements to the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Writes any buffered statements and closes the file.
+     *
+     * @throws IOException if the file cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * A single deposit or withdrawal to be applied to a BankAccount
+ * as part of a batch.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class Transaction {
+
+    private final BankAccount account;
+    private final TransactionType type;
+    private final long amountCents;
+    private final boolean pinRequired;
+    private final int pin;
+
+    private Transaction(final BankAccount account,
+                        final TransactionType type,
+                        final long amountCents,
+                        final boolean pinRequired,
+                        final int pin) {
+        if (account == null) {
+            throw new IllegalArgumentException("account cannot be null");
+        }
+
+        this.account = account;
+        this.type = type;
+        this.amountCents = amountCents;
+        this.pinRequired = pinRequired;
+        this.pin = pin;
+    }
+
+    /**
+     * Creates a deposit.
+     *
+     * @param account the account to deposit into
+     * @param amountUSD the amount of money to deposit
+     * @return the transaction
+     * @throws IllegalArgumentException if the account is null or the amount
+     *         cannot be converted to cents
+     */
+    public static Transaction deposit(final BankAccount account, final double amountUSD) {
+        return new Transaction(account, TransactionType.DEPOSIT,
+                Money.toCents(amountUSD), false, 0);
+    }
+
+    /**
+     * Creates a withdrawal that does not check a PIN.
+     *
+     * @param account the account to withdraw from
+     * @param amountUSD the amount of money to withdraw
+     * @return the transaction
+     * @throws IllegalArgumentException if the account is null or the amount
+     *         cannot be converted to cents
+     */
+    public static Transaction withdrawal(final BankAccount account, final double amountUSD) {
+        return new Transaction(account, TransactionType.WITHDRAWAL,
+                Money.toCents(amountUSD), false, 0);
+    }
+
+    /**
+     * Creates a withdrawal that is only applied if the PIN is correct.
+     *
+     * @param account the account to withdraw from
+     * @param amountUSD the amount of money to withdraw
+     * @param pin the PIN used for verification
+     * @return the transaction
+     * @throws IllegalArgumentException if the account is null or the amount
+     *         cannot be converted to cents
+     */
+    public static Transaction withdrawal(final BankAccount account,
+                                         final double amountUSD,
+                                         final int pin) {
+        return new Transaction(account, TransactionType.WITHDRAWAL,
+                Money.toCents(amountUSD), true, pin);
+    }
+
+    /**
+     * Returns the account the transaction applies to.
+     *
+     * @return the account
+     */
+    public BankAccount getAccount() {
+        return account;
+    }
+
+    /**
+     * Returns the kind of transaction.
+     *
+     * @return the transaction type
+     */
+    public TransactionType getType() {
+        return type;
+    }
+
+    /**
+     * Returns the amount of the transaction in cents.
+     *
+     * @return the amount in cents
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    /**
+     * Applies the transaction to its account.
+     *
+     * @return the outcome
+     */
+    TransactionStatus apply() {
+        if (type == TransactionType.DEPOSIT) {
+            return account.tryDeposit(amountCents);
+        }
+        return pinRequired
+                ? account.tryWithdraw(amountCents, pin)
+                : account.tryWithdraw(amountCents);
+    }
+}
@@ -0,0 +1,302 @@
+package ca.bcit.comp2522.bank;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only journal of balance mutations stored in a memory-mapped file.
+ * Every transaction is written as a fixed-width 32-byte record holding the
+ * encoded account number, the amount in minor units, the timestamp, the
+ * transaction type and the currency. Records are forced to disk in groups
+ * rather than one at a time, and replay rebuilds the balances of registered
+ * accounts, foreign sub-balances included. Journals written before the
+ * currency was recorded hold 0 in its place, which reads back as USD.
+ * <p>
+ * The journal is a TransactionListener, so attaching it to an account
+ * records every deposit and withdrawal made on that account, in any currency. Listeners run
+ * after the account has already changed, so a record that cannot be written
+ * is not thrown back into the transaction; it is counted as lost and the
+ * error is kept for getLastFailure, and the operator should treat the journal
+ * as incomplete from then on.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public class TransactionJournal implements TransactionListener, Closeable {
+
+    /** Size of one record in bytes. */
+    static final int RECORD_BYTES = 32;
+
+    /* Record layout */
+    private static final int KEY_OFFSET = 0;
+    private static final int AMOUNT_OFFSET = 8;
+    private static final int TIME_OFFSET = 16;
+    private static final int TYPE_OFFSET = 24;
+    private static final int CURRENCY_OFFSET = 25;
+
+    /** Size of each mapped window of the file; a multiple of RECORD_BYTES. */
+    private static final int REGION_BYTES = RECORD_BYTES << 16;
+
+    /** Number of records written between forced syncs unless told otherwise. */
+    private static final int DEFAULT_SYNC_EVERY = 256;
+
+    /** Type code of a slot that has never been written. */
+    private static final byte UNWRITTEN = 0;
+
+    private static final CurrencyCode[] CURRENCIES = CurrencyCode.values();
+
+    private final FileChannel channel;
+    private final int syncEvery;
+    private final AtomicLong lostRecords = new AtomicLong();
+
+    private volatile IOException lastFailure;
+
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long nextOffset;
+    private int unsynced;
+
+    /**
+     * Opens a journal, appending after any records already in the file.
+     *
+     * @param file the journal file (created if missing)
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public TransactionJournal(final Path file) throws IOException {
+        this(file, DEFAULT_SYNC_EVERY);
+    }
+
+    /**
+     * Opens a journal that forces records to disk after every
+     * syncEvery appends.
+     *
+     * @param file the journal file (created if missing)
+     * @param syncEvery the number of records per group commit
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws IllegalArgumentException if syncEvery is less than 1
+     */
+    public TransactionJournal(final Path file, final int syncEvery) throws IOException {
+        if (syncEvery < 1) {
+            throw new IllegalArgumentException("syncEvery must be at least 1");
+        }
+
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.syncEvery = syncEvery;
+        this.nextOffset = scan(channel, null);
+
+        mapRegion(nextOffset);
+    }
+
+    /**
+     * Attaches this journal to every account in a registry.
+     *
+     * @param registry the accounts to record
+     */
+    public void attachTo(final AccountRegistry registry) {
+        for (int i = 0; i < registry.size(); i++) {
+            registry.get(i).addTransactionListener(this);
+        }
+    }
+
+    /**
+     * Records a transaction that has been applied to an account.
+     *
+     * @param account the account whose balance changed
+     * @param type the kind of transaction
+     * @param amountCents the positive amount of the transaction in cents
+     */
+    @Override
+    public void onTransaction(final BankAccount account,
+                              final TransactionType type,
+                              final long amountCents) {
+        record(account, type, amountCents, CurrencyCode.USD);
+    }
+
+    /**
+     * Records a transaction that has been applied to a foreign sub-balance.
+     *
+     * @param account the account whose sub-balance changed
+     * @param type the kind of transaction
+     * @param amountCents the positive amount in minor units of the currency
+     * @param currency the currency of the sub-balance
+     */
+    @Override
+    public void onForeignTransaction(final BankAccount account,
+                                     final TransactionType type,
+                                     final long amountCents,
+                                     final CurrencyCode currency) {
+        record(account, type, amountCents, currency);
+    }
+
+    /*
+     * Appends a record for a transaction, counting it as lost if it cannot be written.
+     */
+    private void record(final BankAccount account,
+                        final TransactionType type,
+                        final long amountCents,
+                        final CurrencyCode currency) {
+        try {
+            append(IdCodec.encode(account.getAccountNumber()),
+                    type,
+                    amountCents,
+                    currency,
+                    System.currentTimeMillis());
+        } catch (final IOException e) {
+            // The balance has already changed, so failing the caller would not undo it
+            lostRecords.incrementAndGet();
+            lastFailure = e;
+        }
+    }
+
+    /**
+     * Returns the number of transactions that could not be journaled.
+     *
+     * @return the count of lost records; anything but 0 means replay will
+     *         not reproduce the current balances
+     */
+    public long getLostRecords() {
+        return lostRecords.get();
+    }
+
+    /**
+     * Returns the most recent error that stopped a transaction being journaled.
+     *
+     * @return the error, or null if every transaction was written
+     */
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Appends one record to the journal.
+     *
+     * @param accountKey the account number encoded by IdCodec
+     * @param type the kind of transaction
+     * @param amountCents the positive amount of the transaction in minor units
+     * @param currency the currency of the amount
+     * @param timestampMillis the time of the transaction
+     * @throws IOException if the journal cannot grow
+     */
+    synchronized void append(final long accountKey,
+                             final TransactionType type,
+                             final long amountCents,
+                             final CurrencyCode currency,
+                             final long timestampMillis) throws IOException {
+        if (nextOffset == regionStart + REGION_BYTES) {
+            region.force();
+            mapRegion(nextOffset);
+        }
+
+        final int position = (int) (nextOffset - regionStart);
+
+        region.putLong(position + KEY_OFFSET, accountKey);
+        region.putLong(position + AMOUNT_OFFSET, amountCents);
+        region.putLong(position + TIME_OFFSET, timestampMillis);
+        region.put(position + CURRENCY_OFFSET, (byte) currency.ordinal());
+        region.put(position + TYPE_OFFSET, type.getCode());
+        nextOffset += RECORD_BYTES;
+
+        if (++unsynced >= syncEvery) {
+            flush();
+        }
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     */
+    public synchronized void flush() {
+        region.force();
+        unsynced = 0;
+    }
+
+    /**
+     * Returns the number of records in the journal.
+     *
+     * @return the record count
+     */
+    public synchronized long size() {
+        return nextOffset / RECORD_BYTES;
+    }
+
+    /**
+     * Flushes outstanding records and closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /*
+     * Maps the region of the file that contains the given offset, growing the file if needed.
+     */
+    private void mapRegion(final long offset) throws IOException {
+        regionStart = offset - offset % REGION_BYTES;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_BYTES);
+    }
+
+    /**
+     * Rebuilds account balances by applying every record in a journal file
+     * to the matching account of a registry, in the record's currency.
+     * Records for accounts that are not registered are skipped. Balances
+     * should be zero before replay.
+     *
+     * @param file the journal file
+     * @param registry the accounts to rebuild
+     * @return the number of records read
+     * @throws IOException if the file cannot be read
+     */
+    public static long replay(final Path file, final AccountRegistry registry) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return scan(channel, registry) / RECORD_BYTES;
+        }
+    }
+
+    /*
+     * Walks the records of a journal up to the first unwritten slot, applying each
+     * to the registry when one is given. Returns the offset just past the last record.
+     */
+    private static long scan(final FileChannel channel,
+                             final AccountRegistry registry) throws IOException {
+        final long fileSize = channel.size();
+        long offset = 0;
+
+        while (offset < fileSize) {
+            final int length = (int) Math.min(REGION_BYTES, fileSize - offset);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+
+            for (int position = 0; position + RECORD_BYTES <= length; position += RECORD_BYTES) {
+                final byte code = buffer.get(position + TYPE_OFFSET);
+
+                if (code == UNWRITTEN) {
+                    return offset + position;
+                }
+                if (registry != null) {
+                    final int index = registry.indexOfKey(buffer.getLong(position + KEY_OFFSET));
+
+                    if (index != LongIntHashMap.MISSING) {
+                        final long amount = buffer.getLong(position + AMOUNT_OFFSET);
+                        final CurrencyCode currency = CURRENCIES[buffer.get(position + CURRENCY_OFFSET)];
+
+                        registry.get(index).applyCents(TransactionType.fromCode(code).signedAmount(amount),
+                                currency);
+                    }
+                }
+            }
+            offset += length;
+        }
+
+        return offset;
+    }
+}
@@ -0,0 +1,39 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Receives every successful balance mutation of the BankAccounts it is attached to.
+ * Listeners are called on the thread that performed the mutation, after the
+ * new balance is visible, so implementations should be fast and thread-safe.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface TransactionListener {
+
+    /**
+     * Called after a deposit or withdrawal has been applied.
+     *
+     * @param account the account whose balance changed
+     * @param type the kind of transaction
+     * @param amountCents the positive amount of the transaction in cents
+     */
+    void onTransaction(BankAccount account, TransactionType type, long amountCents);
+
+    /**
+     * Called after a deposit or withdrawal has been applied to a sub-balance in
+     * a currency other than USD. Listeners that only follow the USD balance
+     * can leave this as it is; by default it does nothing.
+     *
+     * @param account the account whose sub-balance changed
+     * @param type the kind of transaction
+     * @param amountCents the positive amount in minor units of the currency
+     * @param currency the currency of the sub-balance, never USD
+     */
+    default void onForeignTransaction(final BankAccount account,
+                                      final TransactionType type,
+                                      final long amountCents,
+                                      final CurrencyCode currency) {
+    }
+}
@@ -0,0 +1,61 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * The outcome of applying a transaction to a BankAccount.
+ * Each status has a one-byte code so results can be stored compactly.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public enum TransactionStatus {
+
+    /** The transaction was applied. */
+    SUCCESS,
+
+    /** The amount was zero, negative or rounded to zero cents. */
+    INVALID_AMOUNT,
+
+    /** The withdrawal exceeded the account balance. */
+    INSUFFICIENT_FUNDS,
+
+    /** The PIN supplied with the withdrawal was incorrect. */
+    WRONG_PIN,
+
+    /** The deposit would have pushed the balance past the largest representable amount. */
+    OVERFLOW,
+
+    /** Too many wrong PINs were entered recently, so the account refuses PIN checks. */
+    LOCKED_OUT,
+
+    /** The exchange rate table had no rate between the two currencies. */
+    NO_RATE,
+
+    /** A withdrawal rule, such as a velocity limit, refused the withdrawal. */
+    LIMIT_EXCEEDED;
+
+    private static final TransactionStatus[] BY_CODE = values();
+
+    /**
+     * Returns the one-byte code of this status.
+     *
+     * @return the code
+     */
+    public byte getCode() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Returns the status with the given code.
+     *
+     * @param code the code to look up
+     * @return the matching status
+     * @throws IllegalArgumentException if no status has the code
+     */
+    public static TransactionStatus fromCode(final byte code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Invalid status code: " + code);
+        }
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,58 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * The kinds of balance mutation a BankAccount can perform.
+ * Each type has a one-byte code used in binary records.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public enum TransactionType {
+
+    /** Money added to an account. */
+    DEPOSIT((byte) 1),
+
+    /** Money taken out of an account. */
+    WITHDRAWAL((byte) 2);
+
+    private final byte code;
+
+    TransactionType(final byte code) {
+        this.code = code;
+    }
+
+    /**
+     * Returns the one-byte code of this type.
+     *
+     * @return the code (never 0)
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the type with the given code.
+     *
+     * @param code the code to look up
+     * @return the matching type
+     * @throws IllegalArgumentException if no type has the code
+     */
+    public static TransactionType fromCode(final byte code) {
+        return switch (code) {
+            case 1 -> DEPOSIT;
+            case 2 -> WITHDRAWAL;
+            default -> throw new IllegalArgumentException("Invalid transaction code: " + code);
+        };
+    }
+
+    /**
+     * Returns the change to a balance caused by a transaction of this type.
+     *
+     * @param amountCents the positive amount of the transaction in cents
+     * @return the signed balance change in cents
+     */
+    public long signedAmount(final long amountCents) {
+        return this == DEPOSIT ? amountCents : -amountCents;
+    }
+}
@@ -0,0 +1,95 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * Moves money between two BankAccounts, withdrawing from one and depositing
+ * into the other. Each leg is a single compare-and-set on one balance, and a
+ * transfer either moves the whole amount or puts the withdrawn money back, so
+ * no money is ever created or lost and the total held by all accounts is the
+ * same once every transfer has returned.
+ * <p>
+ * A transfer is not atomic to observers. Nothing stops a reader, a plain
+ * deposit or withdrawal, MonthEndJob or a snapshot from seeing an account
+ * between the two legs, when the amount has left the first account and not
+ * yet reached the second, or, if the deposit is refused, before it is put
+ * back. A sum over several accounts taken while transfers run can be short by
+ * the amounts in flight. Callers that need an exact total must take it when
+ * no transfer is running.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public class TransferEngine {
+
+    /**
+     * Constructs a transfer engine.
+     */
+    public TransferEngine() {
+    }
+
+    /**
+     * Moves an amount of cents from one account to another.
+     *
+     * @param from the account to take money from
+     * @param to the account to give money to
+     * @param amountCents the amount to move in cents
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive,
+     *         INSUFFICIENT_FUNDS if from cannot cover it, or OVERFLOW if
+     *         the balance of to would overflow
+     * @throws IllegalArgumentException if either account is null or both are the same account
+     * @throws IllegalStateException if the deposit was refused and the
+     *         withdrawn amount could not be put back
+     */
+    public TransactionStatus transfer(final BankAccount from,
+                                      final BankAccount to,
+                                      final long amountCents) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("accounts cannot be null");
+        }
+        if (from == to) {
+            throw new IllegalArgumentException("cannot transfer to the same account");
+        }
+
+        return move(from, to, amountCents);
+    }
+
+    /**
+     * Moves an amount of USD from one account to another.
+     *
+     * @param from the account to take money from
+     * @param to the account to give money to
+     * @param amountUSD the amount to move
+     * @return the outcome, as for transfer in cents
+     * @throws IllegalArgumentException if either account is null, both are the
+     *         same account, or the amount is not a finite number
+     */
+    public TransactionStatus transfer(final BankAccount from,
+                                      final BankAccount to,
+                                      final double amountUSD) {
+        return transfer(from, to, Money.toCents(amountUSD));
+    }
+
+    /*
+     * Withdraws then deposits, putting the money back if the deposit is refused.
+     */
+    private static TransactionStatus move(final BankAccount from,
+                                          final BankAccount to,
+                                          final long amountCents) {
+        final TransactionStatus withdrawn = from.tryWithdraw(amountCents);
+
+        if (withdrawn != TransactionStatus.SUCCESS) {
+            return withdrawn;
+        }
+
+        final TransactionStatus deposited = to.tryDeposit(amountCents);
+
+        // A lock-free deposit racing the transfer could leave no room to put the money back
+        if (deposited != TransactionStatus.SUCCESS
+                && from.tryDeposit(amountCents) != TransactionStatus.SUCCESS) {
+            throw new IllegalStateException("Transfer could not be undone: " + amountCents
+                    + " cents withdrawn from account #" + from.getAccountNumber() + " were not returned");
+        }
+
+        return deposited;
+    }
+}
@@ -0,0 +1,133 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.BitSet;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * The validation rules for names, client IDs and account numbers, shared by
+ * the constructors that enforce them and by bulk checks over whole batches.
+ * <p>
+ * The single-value checks allocate nothing: the restricted word is found
+ * with a case-insensitive region match instead of a lower-cased copy.
+ * The bulk checks split an array into runs of 64 entries, validate the runs
+ * in parallel, and return a BitSet with a bit set for every invalid entry.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class Validation {
+
+    /** Minimum allowed length of a client ID or account number. */
+    private static final int MIN_ID_LENGTH = 6;
+
+    /** Maximum allowed length of a client ID or account number. */
+    private static final int MAX_ID_LENGTH = 7;
+
+    /** A name must be shorter than this. */
+    private static final int MAX_NAME_LENGTH = 100;
+
+    /** Word a name may not contain, in any case. */
+    private static final String RESTRICTED = "admin";
+
+    private static final int WORD_SHIFT = 6;
+
+    private Validation() {
+    }
+
+    /**
+     * Determines whether a first or last name is valid: not null, not blank,
+     * shorter than 100 characters, and not containing "admin" in any case.
+     *
+     * @param name the name to check
+     * @return true if the name is valid
+     */
+    public static boolean isValidName(final String name) {
+        return name != null
+                && name.length() < MAX_NAME_LENGTH
+                && !name.isBlank()
+                && !containsRestricted(name);
+    }
+
+    /**
+     * Determines whether a client ID or account number has a valid length.
+     *
+     * @param id the ID to check
+     * @return true if the ID is 6 or 7 characters long
+     */
+    public static boolean isValidId(final String id) {
+        return id != null
+                && id.length() >= MIN_ID_LENGTH
+                && id.length() <= MAX_ID_LENGTH;
+    }
+
+    /**
+     * Validates a batch of names in parallel.
+     *
+     * @param names the names to check
+     * @return a BitSet with bit i set if names[i] is invalid
+     * @throws IllegalArgumentException if names is null
+     */
+    public static BitSet validateNames(final String[] names) {
+        return validateAll(names, Validation::isValidName);
+    }
+
+    /**
+     * Validates a batch of client IDs or account numbers in parallel.
+     *
+     * @param ids the IDs to check
+     * @return a BitSet with bit i set if ids[i] is invalid
+     * @throws IllegalArgumentException if ids is null
+     */
+    public static BitSet validateIds(final String[] ids) {
+        return validateAll(ids, Validation::isValidId);
+    }
+
+    /*
+     * Checks each run of 64 entries in parallel into its own word of the result,
+     * so no two tasks ever write the same word.
+     */
+    private static BitSet validateAll(final String[] values, final Predicate<String> rule) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+
+        final long[] words = new long[(values.length + Long.SIZE - 1) >>> WORD_SHIFT];
+
+        IntStream.range(0, words.length).parallel().forEach(word -> {
+            final int start = word << WORD_SHIFT;
+            final int end = Math.min(start + Long.SIZE, values.length);
+            long failures = 0;
+
+            for (int i = start; i < end; i++) {
+                if (!rule.test(values[i])) {
+                    failures |= 1L << (i - start);
+                }
+            }
+            words[word] = failures;
+        });
+
+        return BitSet.valueOf(words);
+    }
+
+    /*
+     * Looks for the restricted word at every position that starts with its first letter.
+     */
+    private static boolean containsRestricted(final String name) {
+        final char lower = RESTRICTED.charAt(0);
+        final char upper = Character.toUpperCase(lower);
+        final int last = name.length() - RESTRICTED.length();
+
+        for (int i = 0; i <= last; i++) {
+            final char c = name.charAt(i);
+
+            if ((c == lower || c == upper)
+                    && name.regionMatches(true, i, RESTRICTED, 0, RESTRICTED.length())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
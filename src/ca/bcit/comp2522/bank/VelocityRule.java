@@ -0,0 +1,337 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Limits how many withdrawals, and how much money, each account can take out
+ * within a sliding window of time.
+ * <p>
+ * Every account gets one small Window the first time it withdraws. The count
+ * limit is kept with a ring buffer of the times of the last maxWithdrawals
+ * withdrawals: a new one is admitted when the ring is not yet full or its
+ * oldest entry has left the window. The amount limit is kept with a time
+ * wheel of buckets, each summing the withdrawals of one slice of the window,
+ * with a running total; moving the wheel forward empties the buckets whose
+ * slice has expired. Both checks touch a fixed number of array entries
+ * whatever the traffic, and after an account's first withdrawal they
+ * allocate nothing. Each window is locked on its own, so different accounts
+ * never contend.
+ * <p>
+ * The amount limit works to the width of one slice. The wheel has one bucket
+ * more than the window has slices, so a bucket is only emptied once every
+ * withdrawal in it has left the window: money leaves the total up to one
+ * slice late and never early, which errs towards refusing.
+ * <p>
+ * Accounts that stop withdrawing do not hold memory for ever: once per window
+ * length a sweep starts that drops the windows of accounts with no
+ * withdrawal in the last whole window. The sweep is spread over the
+ * withdrawals that follow, each of which advances a shared cursor over the
+ * tracked accounts by at most SWEEP_BATCH entries, so no single withdrawal
+ * pays for more than that however many accounts are tracked. While a sweep
+ * is under way, withdrawals take turns to advance it; one that finds another
+ * thread already advancing it simply goes on.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class VelocityRule implements WithdrawalRule {
+
+    /** Passed as a limit to turn it off. */
+    public static final long NO_LIMIT = 0;
+
+    /** Largest count limit, which sets the size of each account's ring buffer. */
+    public static final int MAX_WITHDRAWALS = 1024;
+
+    /** Number of slices the amount window is divided into. */
+    static final int WHEEL_SLOTS = 64;
+
+    /** Most tracked accounts one withdrawal checks while a sweep of idle windows is under way. */
+    static final int SWEEP_BATCH = 16;
+
+    /** Tick of a wheel that has never been moved. */
+    private static final long NO_TICK = Long.MIN_VALUE;
+
+    /** Updater used to let one thread at a time advance the sweep. */
+    private static final AtomicIntegerFieldUpdater<VelocityRule> SWEEPING =
+            AtomicIntegerFieldUpdater.newUpdater(VelocityRule.class, "sweeping");
+
+    private final int maxWithdrawals;
+    private final long maxCents;
+    private final long windowMillis;
+    private final long bucketMillis;
+    private final int wheelSlots;
+    private final Map<BankAccount, Window> windows = new ConcurrentHashMap<>();
+
+    /* Sweep state, only changed by the thread that has set sweeping to 1 */
+    private volatile long nextSweepMillis = Long.MIN_VALUE;
+    private volatile Iterator<Window> sweepCursor;
+    private volatile int sweeping;
+
+    /**
+     * Constructs a rule with a count limit, an amount limit, or both.
+     *
+     * @param maxWithdrawals the most withdrawals an account may make in the
+     *                       window, or NO_LIMIT
+     * @param maxCents the most an account may withdraw in the window in cents, or NO_LIMIT
+     * @param windowMillis the length of the sliding window in milliseconds
+     * @throws IllegalArgumentException if both limits are off, a limit is
+     *         negative, maxWithdrawals is above MAX_WITHDRAWALS, or
+     *         windowMillis is not positive
+     */
+    public VelocityRule(final int maxWithdrawals, final long maxCents, final long windowMillis) {
+        if (maxWithdrawals < 0 || maxWithdrawals > MAX_WITHDRAWALS || maxCents < 0) {
+            throw new IllegalArgumentException("Invalid limit");
+        }
+        if (maxWithdrawals == NO_LIMIT && maxCents == NO_LIMIT) {
+            throw new IllegalArgumentException("At least one limit must be set");
+        }
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be positive");
+        }
+
+        this.maxWithdrawals = maxWithdrawals;
+        this.maxCents = maxCents;
+        this.windowMillis = windowMillis;
+        this.bucketMillis = Math.max(1, windowMillis / WHEEL_SLOTS);
+        // One bucket per slice of the window, plus one for the slice the window's start falls in
+        this.wheelSlots = (int) ((windowMillis + bucketMillis - 1) / bucketMillis) + 1;
+    }
+
+    @Override
+    public TransactionStatus admit(final BankAccount account,
+                                   final long amountCents,
+                                   final long nowMillis) {
+        if (sweepCursor != null || nowMillis >= nextSweepMillis) {
+            sweepStep(nowMillis);
+        }
+
+        TransactionStatus status;
+
+        do {
+            Window window = windows.get(account);
+
+            if (window == null) {
+                window = windows.computeIfAbsent(account, ignored -> new Window());
+            }
+            // A window retired by a sweep after we found it is replaced by a fresh one
+            status = window.admit(amountCents, nowMillis);
+        } while (status == null);
+
+        return status;
+    }
+
+    /*
+     * Advances the sweep of idle windows by up to SWEEP_BATCH entries, starting
+     * a new pass if one is due. Does nothing if another thread is advancing it.
+     */
+    private void sweepStep(final long nowMillis) {
+        if (!SWEEPING.compareAndSet(this, 0, 1)) {
+            return;
+        }
+
+        try {
+            Iterator<Window> cursor = sweepCursor;
+
+            if (cursor == null) {
+                if (nowMillis < nextSweepMillis) {
+                    return;
+                }
+                nextSweepMillis = nowMillis + windowMillis;
+                cursor = windows.values().iterator();
+            }
+            for (int checked = 0; checked < SWEEP_BATCH && cursor.hasNext(); checked++) {
+                if (cursor.next().retireIfIdle(nowMillis)) {
+                    cursor.remove();
+                }
+            }
+            sweepCursor = cursor.hasNext() ? cursor : null;
+        } finally {
+            sweeping = 0;
+        }
+    }
+
+    @Override
+    public void release(final BankAccount account, final long amountCents, final long nowMillis) {
+        final Window window = windows.get(account);
+
+        if (window != null) {
+            window.release(amountCents, nowMillis);
+        }
+    }
+
+    /**
+     * Returns the number of accounts whose recent withdrawals are being tracked.
+     *
+     * @return the number of windows held
+     */
+    public int getTrackedAccounts() {
+        return windows.size();
+    }
+
+    /**
+     * Returns the number of withdrawals an account has made within the window.
+     *
+     * @param account the account
+     * @param nowMillis the current time in epoch milliseconds
+     * @return the count, or 0 if the rule has not seen the account or has no count limit
+     */
+    public int getWithdrawalCount(final BankAccount account, final long nowMillis) {
+        final Window window = windows.get(account);
+
+        return window == null ? 0 : window.count(nowMillis);
+    }
+
+    /**
+     * Returns the amount an account has withdrawn within the window.
+     *
+     * @param account the account
+     * @param nowMillis the current time in epoch milliseconds
+     * @return the amount in cents, or 0 if the rule has not seen the account
+     *         or has no amount limit
+     */
+    public long getWithdrawnCents(final BankAccount account, final long nowMillis) {
+        final Window window = windows.get(account);
+
+        return window == null ? 0 : window.total(nowMillis);
+    }
+
+    /*
+     * The recent withdrawals of one account.
+     */
+    private final class Window {
+        /* Ring buffer of withdrawal times, oldest at next once full */
+        private final long[] times = new long[maxWithdrawals];
+        private int next;
+        private int size;
+
+        /* Time wheel of amounts, one bucket per tick of bucketMillis */
+        private final long[] buckets = new long[maxCents == NO_LIMIT ? 0 : wheelSlots];
+        private long tick = NO_TICK;
+        private long total;
+
+        /* Time of the latest admitted withdrawal, and whether a sweep has dropped this window */
+        private long lastMillis;
+        private boolean retired;
+
+        /*
+         * Returns null if the window has been retired, so the caller looks it up again.
+         */
+        private synchronized TransactionStatus admit(final long amountCents, final long nowMillis) {
+            if (retired) {
+                return null;
+            }
+            if (maxWithdrawals != NO_LIMIT && size == maxWithdrawals
+                    && times[next] > nowMillis - windowMillis) {
+                return TransactionStatus.LIMIT_EXCEEDED;
+            }
+            if (maxCents != NO_LIMIT) {
+                final long nowTick = nowMillis / bucketMillis;
+
+                advance(nowTick);
+                if (amountCents > maxCents - total) {
+                    return TransactionStatus.LIMIT_EXCEEDED;
+                }
+                // A time another thread has already moved past still counts in its own bucket
+                if (tick - nowTick < wheelSlots) {
+                    buckets[slot(nowTick)] += amountCents;
+                    total += amountCents;
+                }
+            }
+            if (maxWithdrawals != NO_LIMIT) {
+                times[next] = nowMillis;
+                next = (next + 1) % maxWithdrawals;
+                size = Math.min(size + 1, maxWithdrawals);
+            }
+            lastMillis = Math.max(lastMillis, nowMillis);
+            return TransactionStatus.SUCCESS;
+        }
+
+        /*
+         * Retires the window if every withdrawal it admitted has left the
+         * window, so that a later admit cannot count into it once it is dropped.
+         */
+        private synchronized boolean retireIfIdle(final long nowMillis) {
+            retired = lastMillis <= nowMillis - windowMillis;
+            return retired;
+        }
+
+        /*
+         * Removes the newest matching entry from the ring, closing the gap, and
+         * takes the amount back out of its bucket if that has not expired.
+         */
+        private synchronized void release(final long amountCents, final long nowMillis) {
+            if (maxCents != NO_LIMIT) {
+                final long admittedTick = nowMillis / bucketMillis;
+
+                if (tick - admittedTick < wheelSlots) {
+                    buckets[slot(admittedTick)] -= amountCents;
+                    total -= amountCents;
+                }
+            }
+            if (maxWithdrawals == NO_LIMIT) {
+                return;
+            }
+
+            for (int back = 1; back <= size; back++) {
+                final int index = Math.floorMod(next - back, maxWithdrawals);
+
+                if (times[index] == nowMillis) {
+                    for (int moved = back - 1; moved > 0; moved--) {
+                        times[Math.floorMod(next - moved - 1, maxWithdrawals)] =
+                                times[Math.floorMod(next - moved, maxWithdrawals)];
+                    }
+                    next = Math.floorMod(next - 1, maxWithdrawals);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        /*
+         * Moves the wheel forward to a tick, emptying each bucket it passes.
+         * At most wheelSlots buckets are cleared however long the account was idle.
+         */
+        private void advance(final long nowTick) {
+            if (tick != NO_TICK && nowTick <= tick) {
+                return;
+            }
+            if (tick == NO_TICK || nowTick - tick >= wheelSlots) {
+                Arrays.fill(buckets, 0);
+                total = 0;
+            } else {
+                for (long t = tick + 1; t <= nowTick; t++) {
+                    total -= buckets[slot(t)];
+                    buckets[slot(t)] = 0;
+                }
+            }
+            tick = nowTick;
+        }
+
+        private int slot(final long atTick) {
+            return (int) Math.floorMod(atTick, (long) wheelSlots);
+        }
+
+        private synchronized int count(final long nowMillis) {
+            int inWindow = 0;
+
+            for (int back = 1; back <= size; back++) {
+                if (times[Math.floorMod(next - back, maxWithdrawals)] > nowMillis - windowMillis) {
+                    inWindow++;
+                }
+            }
+            return inWindow;
+        }
+
+        private synchronized long total(final long nowMillis) {
+            if (maxCents != NO_LIMIT) {
+                advance(nowMillis / bucketMillis);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package ca.bcit.comp2522.bank;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs withdrawals through a chain of WithdrawalRules, such as fraud and
+ * velocity checks, before committing them to the account.
+ * <p>
+ * A withdrawal with a PIN has the PIN checked before anything else, and then
+ * its amount, in the same order as BankAccount.withdraw, so a wrong PIN
+ * counts towards the account's lockout whatever the amount and never reaches
+ * the rules. Each rule is then asked to admit it in
+ * the order the rules were added. If a rule refuses, or the account itself
+ * rejects the withdrawal, every rule that had admitted it is told to release
+ * it. The account class knows nothing about the rules, so new rules are
+ * added here without changing it.
+ * <p>
+ * Rules are held in an array that is copied when a rule is added, so
+ * withdrawals read them without locking or allocating. Every withdrawal made
+ * through the pipeline, including one a rule refuses with LIMIT_EXCEEDED, is
+ * recorded once in the installed AccountMetrics, as a PIN withdrawal when a
+ * PIN was given and as a withdrawal otherwise.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public final class WithdrawalPipeline {
+
+    /** Shared by every pipeline that has no rules. */
+    private static final WithdrawalRule[] NO_RULES = new WithdrawalRule[0];
+
+    private final LongSupplier clock;
+    private volatile WithdrawalRule[] rules = NO_RULES;
+
+    /**
+     * Constructs a pipeline that times withdrawals with the system clock.
+     */
+    public WithdrawalPipeline() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a pipeline that times withdrawals with a given clock.
+     *
+     * @param clock supplies the current time in epoch milliseconds
+     * @throws IllegalArgumentException if clock is null
+     */
+    public WithdrawalPipeline(final LongSupplier clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("clock cannot be null");
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a rule to the end of the chain.
+     *
+     * @param rule the rule to add
+     * @return this pipeline
+     * @throws IllegalArgumentException if the rule is null
+     */
+    public synchronized WithdrawalPipeline addRule(final WithdrawalRule rule) {
+        if (rule == null) {
+            throw new IllegalArgumentException("rule cannot be null");
+        }
+
+        final WithdrawalRule[] updated = Arrays.copyOf(rules, rules.length + 1);
+        updated[rules.length] = rule;
+        rules = updated;
+        return this;
+    }
+
+    /**
+     * Withdraws a specified amount of USD from an account after the rules admit it.
+     *
+     * @param account the account to withdraw from
+     * @param amountUSD the amount of money to withdraw
+     * @throws IllegalArgumentException if the account is null, the amount is
+     *         less than or equal to zero, not a finite number, or exceeds the
+     *         balance, or a rule refuses the withdrawal
+     */
+    public void withdraw(final BankAccount account, final double amountUSD) {
+        checkAccount(account);
+
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+        final long amountCents = toCents(amountUSD, metrics, AccountMetrics.Operation.WITHDRAWAL, start);
+
+        BankAccount.throwIfRejected(AccountMetrics.record(metrics, AccountMetrics.Operation.WITHDRAWAL,
+                admitAndCommit(account, amountCents), start));
+    }
+
+    /**
+     * Withdraws a specified amount of USD from an account after verifying the
+     * provided PIN and letting the rules admit it.
+     *
+     * @param account the account to withdraw from
+     * @param amountUSD the amount of money to withdraw
+     * @param pinToMatch the PIN used for verification
+     * @throws IllegalArgumentException if the account is null, the PIN is
+     *         incorrect, the account is locked after too many wrong PINs, the
+     *         withdrawal amount is invalid, or a rule refuses the withdrawal
+     */
+    public void withdraw(final BankAccount account, final double amountUSD, final int pinToMatch) {
+        checkAccount(account);
+
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+        TransactionStatus status = account.verifyPin(pinToMatch);
+
+        if (status == TransactionStatus.SUCCESS) {
+            status = admitAndCommit(account,
+                    toCents(amountUSD, metrics, AccountMetrics.Operation.PIN_WITHDRAWAL, start));
+        }
+        BankAccount.throwIfRejected(AccountMetrics.record(metrics, AccountMetrics.Operation.PIN_WITHDRAWAL,
+                status, start));
+    }
+
+    private static void checkAccount(final BankAccount account) {
+        if (account == null) {
+            throw new IllegalArgumentException("account cannot be null");
+        }
+    }
+
+    /*
+     * Converts a USD amount to cents, recording a rejected amount as
+     * INVALID_AMOUNT for the operation before rethrowing.
+     */
+    private static long toCents(final double amountUSD,
+                                final AccountMetrics metrics,
+                                final AccountMetrics.Operation operation,
+                                final long start) {
+        try {
+            return Money.toCents(amountUSD);
+        } catch (final IllegalArgumentException e) {
+            AccountMetrics.record(metrics, operation, TransactionStatus.INVALID_AMOUNT, start);
+            throw e;
+        }
+    }
+
+    /**
+     * Verifies a PIN and then withdraws through the rules, without throwing on failure.
+     * The outcome is recorded in the installed AccountMetrics as a PIN withdrawal.
+     *
+     * @param account the account to withdraw from
+     * @param amountCents the amount to withdraw in cents
+     * @param pinToMatch the PIN used for verification
+     * @return the PIN status if verification fails, otherwise as for tryWithdraw
+     */
+    TransactionStatus tryWithdraw(final BankAccount account,
+                                  final long amountCents,
+                                  final int pinToMatch) {
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+
+        return AccountMetrics.record(metrics, AccountMetrics.Operation.PIN_WITHDRAWAL,
+                verifyAndCommit(account, amountCents, pinToMatch), start);
+    }
+
+    /**
+     * Withdraws an amount of cents through the rules without throwing on failure.
+     * The outcome, including a refusal by a rule, is recorded in the installed
+     * AccountMetrics as a withdrawal.
+     *
+     * @param account the account to withdraw from
+     * @param amountCents the amount to withdraw in cents
+     * @return SUCCESS, INVALID_AMOUNT if the amount is not positive, the
+     *         status of the first rule that refused, or INSUFFICIENT_FUNDS
+     */
+    TransactionStatus tryWithdraw(final BankAccount account, final long amountCents) {
+        final AccountMetrics metrics = AccountMetrics.installed();
+        final long start = AccountMetrics.start(metrics);
+
+        return AccountMetrics.record(metrics, AccountMetrics.Operation.WITHDRAWAL,
+                admitAndCommit(account, amountCents), start);
+    }
+
+    /*
+     * Checks the PIN, then the amount, then runs the withdrawal through the rules.
+     */
+    private TransactionStatus verifyAndCommit(final BankAccount account,
+                                              final long amountCents,
+                                              final int pinToMatch) {
+        final TransactionStatus status = account.verifyPin(pinToMatch);
+
+        return status == TransactionStatus.SUCCESS ? admitAndCommit(account, amountCents) : status;
+    }
+
+    /*
+     * Asks each rule to admit the withdrawal, commits it to the account, and
+     * releases the rules that admitted it if it does not go through. The
+     * account's own metrics are bypassed so the caller records the outcome once.
+     */
+    private TransactionStatus admitAndCommit(final BankAccount account, final long amountCents) {
+        if (amountCents <= 0) {
+            return TransactionStatus.INVALID_AMOUNT;
+        }
+
+        final WithdrawalRule[] chain = rules;
+        final long now = chain.length == 0 ? 0 : clock.getAsLong();
+        int admitted = 0;
+        TransactionStatus status = TransactionStatus.SUCCESS;
+
+        while (admitted < chain.length && status == TransactionStatus.SUCCESS) {
+            status = chain[admitted].admit(account, amountCents, now);
+            if (status == TransactionStatus.SUCCESS) {
+                admitted++;
+            }
+        }
+        if (status == TransactionStatus.SUCCESS) {
+            status = account.applyWithdrawal(amountCents);
+        }
+        if (status != TransactionStatus.SUCCESS) {
+            for (int i = admitted - 1; i >= 0; i--) {
+                chain[i].release(account, amountCents, now);
+            }
+        }
+
+        return status;
+    }
+}
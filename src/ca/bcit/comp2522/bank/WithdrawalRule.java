@@ -0,0 +1,37 @@
+package ca.bcit.comp2522.bank;
+
+/**
+ * A check a WithdrawalPipeline runs before it commits a withdrawal.
+ * <p>
+ * A rule that admits a withdrawal may count it straight away, so that two
+ * concurrent withdrawals cannot both slip under a limit. If the withdrawal is
+ * then refused by a later rule or by the account itself, the pipeline calls
+ * release with the same arguments so the rule can forget it. Rules are called
+ * from many threads at once and should be fast and thread-safe.
+ *
+ * @author Brian Lau
+ * @author Giant Mak
+ * @version 1.0
+ */
+public interface WithdrawalRule {
+
+    /**
+     * Decides whether a withdrawal may go ahead, and counts it if so.
+     *
+     * @param account the account being withdrawn from
+     * @param amountCents the positive amount in cents
+     * @param nowMillis the time of the withdrawal in epoch milliseconds
+     * @return SUCCESS to let the withdrawal continue, or the status to refuse it with
+     */
+    TransactionStatus admit(BankAccount account, long amountCents, long nowMillis);
+
+    /**
+     * Forgets a withdrawal this rule admitted but that was not committed.
+     *
+     * @param account the account passed to admit
+     * @param amountCents the amount passed to admit
+     * @param nowMillis the time passed to admit
+     */
+    default void release(final BankAccount account, final long amountCents, final long nowMillis) {
+    }
+}